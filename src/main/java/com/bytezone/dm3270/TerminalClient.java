@@ -9,14 +9,21 @@ import com.bytezone.dm3270.display.Field;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.ScreenChangeListener;
 import com.bytezone.dm3270.display.ScreenDimensions;
-import com.bytezone.dm3270.display.ScreenPosition;
+import com.bytezone.dm3270.display.ScreenImageCache;
+import com.bytezone.dm3270.display.ScreenSnapshot;
+import com.bytezone.dm3270.streams.DecodingQueue;
+import com.bytezone.dm3270.streams.NioEventLoopGroup;
+import com.bytezone.dm3270.streams.SslSessionCache;
 import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.streams.TransportFactory;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
 import java.awt.Point;
-import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
 import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
 
 /**
  * Client to connect to TN3270 terminal servers.
@@ -31,6 +38,14 @@ public class TerminalClient {
   private SocketFactory socketFactory = SocketFactory.getDefault();
   private ConnectionListener connectionListener;
   private int connectionTimeoutMillis;
+  private NioEventLoopGroup eventLoopGroup;
+  private SSLContext sslContext;
+  private SslSessionCache sslSessionCache;
+  private int decodingQueueCapacity;
+  private DecodingQueue.BackpressurePolicy backpressurePolicy;
+  private TransportFactory transportFactory;
+  private ThreadFactory threadFactory;
+  private int maxRecordSize = TelnetProcessor.DEFAULT_MAX_RECORD_SIZE;
 
   /**
    * Creates a new terminal client with given model and screen dimensions.
@@ -91,6 +106,157 @@ public class TerminalClient {
     this.connectionListener = connectionListener;
   }
 
+  ConnectionListener getConnectionListener() {
+    return connectionListener;
+  }
+
+  /**
+   * Sets the time the connection may stay idle before sending a NOOP to the server to keep it
+   * alive.
+   * <p>
+   * The keep alive of all the clients is handled by a single thread shared by the process.
+   *
+   * @param keepAliveIdleMillis Number of millis without communication with the server after which
+   * a NOOP is sent. If not specified {@link TelnetState#DEFAULT_KEEP_ALIVE_IDLE_MILLIS} will be
+   * used.
+   */
+  public void setKeepAliveIdleMillis(long keepAliveIdleMillis) {
+    screen.getTelnetState().setKeepAliveIdleMillis(keepAliveIdleMillis);
+  }
+
+  /**
+   * Sets the maximum size of the records received from the server.
+   * <p>
+   * Records are held in buffers shared with other clients while being received, so this limit
+   * protects the process from servers sending unexpectedly big records. When a record exceeds it,
+   * the connection is closed and the exception is notified to the {@link ConnectionListener}.
+   *
+   * @param maxRecordSize maximum number of bytes of a record, including any doubled IAC and the
+   * closing IAC EOR. If not specified {@link TelnetProcessor#DEFAULT_MAX_RECORD_SIZE} will be
+   * used.
+   */
+  public void setMaxRecordSize(int maxRecordSize) {
+    this.maxRecordSize = maxRecordSize;
+  }
+
+  /**
+   * Sets the {@link NioEventLoopGroup} to serve the connection with non-blocking I/O, instead of
+   * using a dedicated thread per connection.
+   * <p>
+   * This allows sharing a few threads between many clients, but can't be combined with a {@link
+   * javax.net.ssl.SSLSocketFactory} set through {@link #setSocketFactory(SocketFactory)}. Use
+   * {@link #setSslContext(SSLContext)} instead to establish SSL connections.
+   *
+   * @param eventLoopGroup the group of event loops to serve the connection from. If none is
+   * specified a blocking socket will be used.
+   */
+  public void setEventLoopGroup(NioEventLoopGroup eventLoopGroup) {
+    this.eventLoopGroup = eventLoopGroup;
+  }
+
+  /**
+   * Sets the {@link ThreadFactory} to create the thread which reads from the connection, when no
+   * event loop group is set.
+   * <p>
+   * Use {@link com.bytezone.dm3270.streams.SessionThreads#virtualIfAvailable()} to read with
+   * virtual threads in Java 21 or later runtimes, which allows serving a great number of clients
+   * with blocking sockets.
+   *
+   * @param threadFactory the factory to create reading threads with. If none is specified a
+   * platform thread is created for each connection.
+   */
+  public void setThreadFactory(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+  }
+
+  /**
+   * Sets the {@link SSLContext} to establish SSL connections with.
+   * <p>
+   * When an event loop group is set the connection is encrypted with an {@link
+   * javax.net.ssl.SSLEngine} without blocking any thread, otherwise the socket factory of the
+   * context is used, taking precedence over any socket factory set with {@link
+   * #setSocketFactory(SocketFactory)}.
+   *
+   * @param sslContext the {@link SSLContext} to use. If none is specified the connection will not
+   * be encrypted, unless an SSL socket factory is set.
+   */
+  public void setSslContext(SSLContext sslContext) {
+    this.sslContext = sslContext;
+  }
+
+  /**
+   * Sets an {@link SslSessionCache} to resume SSL sessions previously established by any client
+   * sharing the cache with the same host and port, avoiding the cost of full handshakes.
+   * <p>
+   * This replaces any {@link SSLContext} set with {@link #setSslContext(SSLContext)} with the one
+   * of the cache.
+   *
+   * @param sslSessionCache the cache to share between clients.
+   */
+  public void setSslSessionCache(SslSessionCache sslSessionCache) {
+    this.sslSessionCache = sslSessionCache;
+    this.sslContext = sslSessionCache.getSslContext();
+  }
+
+  /**
+   * Sets a bounded queue between the reception of data from the server and its processing, so a
+   * slow {@link ScreenChangeListener} or other listener does not stall reading from the
+   * connection.
+   * <p>
+   * Received data is processed in order by one of a fixed set of threads, as many as available
+   * processors, shared with other clients. Listeners blocking for long hold one of these threads.
+   *
+   * @param capacity maximum number of received segments waiting to be processed. If not specified
+   * (or 0) data is processed by the thread reading from the connection.
+   * @param backpressurePolicy what to do when data is received and the queue is full.
+   */
+  public void setDecodingQueue(int capacity, DecodingQueue.BackpressurePolicy backpressurePolicy) {
+    this.decodingQueueCapacity = capacity;
+    this.backpressurePolicy = backpressurePolicy;
+  }
+
+  /**
+   * Sets a {@link ScreenImageCache} to draw the screens sent by erase write commands from the
+   * screens previously drawn by any client sharing the cache, instead of parsing and executing the
+   * same orders again.
+   * <p>
+   * This is useful when the same menus and panels are received many times, as usually happens in
+   * scripted flows.
+   *
+   * @param screenImageCache the cache to share between clients. If none is specified every
+   * command is executed.
+   */
+  public void setScreenImageCache(ScreenImageCache screenImageCache) {
+    screen.setScreenImageCache(screenImageCache);
+  }
+
+  /**
+   * Sets a factory of the transports used to communicate with the terminal server, replacing the
+   * network connection, like a {@link com.bytezone.dm3270.streams.LoopbackTransport} to run
+   * benchmarks and tests against a host simulated in the same JVM.
+   * <p>
+   * When a factory is set, any socket factory, event loop group or SSL configuration of the client
+   * is ignored.
+   *
+   * @param transportFactory the factory to create a transport on each connection. If none is
+   * specified transports are created from the rest of the client configuration.
+   */
+  public void setTransportFactory(TransportFactory transportFactory) {
+    this.transportFactory = transportFactory;
+  }
+
+  /**
+   * Gets the queue of received data set with {@link #setDecodingQueue(int,
+   * DecodingQueue.BackpressurePolicy)}, to check its depth.
+   *
+   * @return the queue of the current connection, or empty if no queue is used or the client is
+   * not connected.
+   */
+  public Optional<DecodingQueue> getDecodingQueue() {
+    return consolePane != null ? Optional.ofNullable(consolePane.getDecodingQueue())
+        : Optional.empty();
+  }
+
   /**
    * Connect to a terminal server.
    *
@@ -102,6 +268,13 @@ public class TerminalClient {
     consolePane = new ConsolePane(screen, new Site(host, port, usesExtended3270), socketFactory);
     consolePane.setConnectionTimeoutMillis(connectionTimeoutMillis);
     consolePane.setConnectionListener(connectionListener);
+    consolePane.setEventLoopGroup(eventLoopGroup);
+    consolePane.setSslContext(sslContext);
+    consolePane.setSslSessionCache(sslSessionCache);
+    consolePane.setDecodingQueue(decodingQueueCapacity, backpressurePolicy);
+    consolePane.setTransportFactory(transportFactory);
+    consolePane.setThreadFactory(threadFactory);
+    consolePane.setMaxRecordSize(maxRecordSize);
     consolePane.connect();
   }
 
@@ -278,24 +451,21 @@ public class TerminalClient {
    * @return The screen text with newlines separating each row.
    */
   public String getScreenText() {
-    StringBuilder text = new StringBuilder();
-    int pos = 0;
-    boolean visible = true;
-    Iterator<ScreenPosition> positionsIterator = screen.getPen().iterator();
-    ScreenDimensions screenDimensions = screen.getScreenDimensions();
-    int positionsCount = screenDimensions.columns * screenDimensions.rows;
-    while (pos < positionsCount && positionsIterator.hasNext()) {
-      ScreenPosition sp = positionsIterator.next();
-      if (sp.isStartField()) {
-        visible = sp.getStartFieldAttribute().isVisible();
-      }
-      text.append(visible ? sp.getChar() : ' ');
-      ++pos;
-      if (pos % screenDimensions.columns == 0) {
-        text.append("\n");
-      }
-    }
-    return text.toString();
+    return screen.getScreenText();
+  }
+
+  /**
+   * Gets an immutable snapshot of the screen, with its text, fields, cursor and keyboard state.
+   * <p>
+   * Unlike the rest of the getters of the screen, this method can be called at any time from
+   * any thread, as snapshots are published after completely processing each record received
+   * from the server. Changes made by the client are included in the snapshot published after the
+   * next record.
+   *
+   * @return The snapshot of the screen after the last processed record.
+   */
+  public ScreenSnapshot getScreenSnapshot() {
+    return screen.getSnapshot();
   }
 
   /**
@@ -419,6 +589,16 @@ public class TerminalClient {
     screen.getScreenCursor().removeCursorMoveListener(listener);
   }
 
+  /**
+   * Gets whether the client is connected to the terminal server.
+   *
+   * @return true when the connection to the server is established and has not been closed, false
+   * otherwise.
+   */
+  public boolean isConnected() {
+    return consolePane != null && consolePane.isConnected();
+  }
+
   /**
    * Disconnect the terminal emulator from the server.
    *
@@ -0,0 +1,381 @@
+package com.bytezone.dm3270;
+
+import com.bytezone.dm3270.application.KeyboardStatusChangedEvent;
+import com.bytezone.dm3270.application.KeyboardStatusListener;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connects many clients to terminal servers at the pace the servers can take.
+ * <p>
+ * New connections are started at a limited rate (token bucket), with a limit of connections in
+ * progress per server (host and port), and failed connections are retried with jittered
+ * exponential backoff. A connection is considered in progress until the keyboard is first
+ * unlocked, so the negotiation with the server is limited as well.
+ */
+public class TerminalClientConnector implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TerminalClientConnector.class);
+
+  private final double connectionsPerSecond;
+  private final int maxConnectingPerHost;
+  private int maxAttempts = 5;
+  private long initialBackoffMillis = 1000;
+  private long maxBackoffMillis = 30000;
+  private long readyTimeoutMillis = 30000;
+
+  private final ScheduledExecutorService scheduler;
+  // disconnecting waits for the connection threads to end, which may take long with a hung host,
+  // so it never runs in the scheduler, which would hold back the attempts to every host
+  private final ExecutorService disconnector;
+  private final Queue<ConnectionAttempt> pendingAttempts = new ConcurrentLinkedQueue<>();
+  // attempts whose future is not completed, whether pending, connecting or waiting to retry
+  private final Set<ConnectionAttempt> liveAttempts = ConcurrentHashMap.newKeySet();
+  // keyed by host and port, as each port of a host may be a different server
+  private final Map<String, Semaphore> serverPermits = new ConcurrentHashMap<>();
+  private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+  // token bucket, only accessed while dispatching
+  private double tokens;
+  private long lastRefillNanos = System.nanoTime();
+
+  /**
+   * Creates a connector with the given limits.
+   *
+   * @param connectionsPerSecond maximum number of connections to start per second.
+   * @param maxConnectingPerHost maximum number of connections in progress to each host and
+   * port.
+   */
+  public TerminalClientConnector(double connectionsPerSecond, int maxConnectingPerHost) {
+    if (connectionsPerSecond <= 0) {
+      throw new IllegalArgumentException(
+          "Connections per second must be greater than 0: " + connectionsPerSecond);
+    }
+    if (maxConnectingPerHost <= 0) {
+      throw new IllegalArgumentException(
+          "Max connecting per host must be greater than 0: " + maxConnectingPerHost);
+    }
+    this.connectionsPerSecond = connectionsPerSecond;
+    this.maxConnectingPerHost = maxConnectingPerHost;
+    this.tokens = 1;
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "dm3270-connector");
+      thread.setDaemon(true);
+      return thread;
+    });
+    disconnector = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "dm3270-connector-disconnect");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Sets the number of times a connection is attempted before failing.
+   *
+   * @param maxAttempts number of attempts, including the first one. By default 5.
+   */
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Sets the bounds of the wait between attempts, which doubles on each failure and is randomized
+   * between 0 and the resulting value to avoid retrying all connections at once.
+   *
+   * @param initialBackoffMillis maximum millis to wait after the first failure. By default 1
+   * second.
+   * @param maxBackoffMillis maximum millis to wait between any attempts. By default 30 seconds.
+   */
+  public void setBackoffMillis(long initialBackoffMillis, long maxBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  /**
+   * Sets the time a connection has to unlock the keyboard before the attempt is considered
+   * failed.
+   *
+   * @param readyTimeoutMillis millis to wait for the keyboard to be unlocked. By default 30
+   * seconds.
+   */
+  public void setReadyTimeoutMillis(long readyTimeoutMillis) {
+    this.readyTimeoutMillis = readyTimeoutMillis;
+  }
+
+  /**
+   * Schedules the connection of a client.
+   * <p>
+   * Any {@link ConnectionListener} set in the client keeps receiving all connection events,
+   * including the ones of failed attempts.
+   *
+   * @param client client to connect, which must not be connected.
+   * @param host host name of the terminal server.
+   * @param port port where the terminal server is listening for connections.
+   * @return a future completed with the client once its keyboard is unlocked, or completed
+   * exceptionally with the failure of the last attempt.
+   */
+  public CompletableFuture<TerminalClient> connect(TerminalClient client, String host,
+      int port) {
+    ConnectionAttempt attempt = new ConnectionAttempt(client, host, port);
+    liveAttempts.add(attempt);
+    attempt.future.whenComplete((c, e) -> liveAttempts.remove(attempt));
+    pendingAttempts.add(attempt);
+    scheduleDispatch(0);
+    if (scheduler.isShutdown()) {
+      attempt.abort(new IllegalStateException("Connector is closed"));
+    }
+    return attempt.future;
+  }
+
+  /**
+   * Schedules the connection of several clients to the same terminal server.
+   *
+   * @param clients clients to connect, which must not be connected.
+   * @param host host name of the terminal server.
+   * @param port port where the terminal server is listening for connections.
+   * @return a future for each client, in the same order as the given clients.
+   * @see #connect(TerminalClient, String, int)
+   */
+  public List<CompletableFuture<TerminalClient>> connectAll(List<TerminalClient> clients,
+      String host, int port) {
+    List<CompletableFuture<TerminalClient>> futures = new ArrayList<>(clients.size());
+    for (TerminalClient client : clients) {
+      futures.add(connect(client, host, port));
+    }
+    return futures;
+  }
+
+  private void scheduleDispatch(long delayMillis) {
+    if (!scheduler.isShutdown() && dispatchScheduled.compareAndSet(false, true)) {
+      try {
+        scheduler.schedule(this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // closed concurrently, and close fails every attempt
+        LOG.debug("Connector closed while scheduling dispatch");
+      }
+    }
+  }
+
+  private void dispatch() {
+    dispatchScheduled.set(false);
+    refillTokens();
+
+    Iterator<ConnectionAttempt> it = pendingAttempts.iterator();
+    while (tokens >= 1 && it.hasNext()) {
+      ConnectionAttempt attempt = it.next();
+      // attempts to hosts at their limit wait, without holding back the ones to other hosts
+      if (attempt.permits.tryAcquire()) {
+        it.remove();
+        tokens--;
+        attempt.start();
+      }
+    }
+
+    if (!pendingAttempts.isEmpty() && tokens < 1) {
+      long waitMillis = (long) Math.ceil((1 - tokens) * 1000 / connectionsPerSecond);
+      scheduleDispatch(waitMillis);
+    }
+  }
+
+  private void refillTokens() {
+    long now = System.nanoTime();
+    double elapsedSeconds = (now - lastRefillNanos) / 1e9;
+    lastRefillNanos = now;
+    // allow bursts of up to one second of connections
+    tokens = Math.min(Math.max(1, connectionsPerSecond),
+        tokens + elapsedSeconds * connectionsPerSecond);
+  }
+
+  private Semaphore serverPermits(String host, int port) {
+    return serverPermits.computeIfAbsent(host + ":" + port,
+        s -> new Semaphore(maxConnectingPerHost));
+  }
+
+  private long backoffMillis(int attempt) {
+    long maxWait = initialBackoffMillis << Math.min(attempt - 1, 30);
+    if (maxWait <= 0 || maxWait > maxBackoffMillis) {
+      maxWait = maxBackoffMillis;
+    }
+    return ThreadLocalRandom.current().nextLong(maxWait + 1);
+  }
+
+  /**
+   * Stops scheduling connections, failing the ones not yet completed. Clients still connecting
+   * are disconnected.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    pendingAttempts.clear();
+    for (ConnectionAttempt attempt : liveAttempts) {
+      attempt.abort(new IllegalStateException("Connector is closed"));
+    }
+    // disconnections already requested still run
+    disconnector.shutdown();
+  }
+
+  private final class ConnectionAttempt implements ConnectionListener, KeyboardStatusListener {
+
+    private final TerminalClient client;
+    private final String host;
+    private final int port;
+    private final Semaphore permits;
+    private final ConnectionListener clientListener;
+    private final CompletableFuture<TerminalClient> future = new CompletableFuture<>();
+    private int attempts;
+    private volatile boolean inProgress;
+    private ScheduledFuture<?> readyTimeout;
+
+    private ConnectionAttempt(TerminalClient client, String host, int port) {
+      this.client = client;
+      this.host = host;
+      this.port = port;
+      this.permits = serverPermits(host, port);
+      this.clientListener = client.getConnectionListener();
+    }
+
+    private synchronized void start() {
+      attempts++;
+      inProgress = true;
+      client.setConnectionListener(this);
+      LOG.debug("Connecting to {}:{}, attempt {}", host, port, attempts);
+      client.addKeyboardStatusListener(this);
+      readyTimeout = scheduler.schedule(() -> fail(new TimeoutException(
+          "Keyboard not unlocked after " + readyTimeoutMillis + "ms")), readyTimeoutMillis,
+          TimeUnit.MILLISECONDS);
+      try {
+        client.connect(host, port);
+      } catch (RuntimeException e) {
+        fail(e);
+      }
+    }
+
+    @Override
+    public void keyboardStatusChanged(KeyboardStatusChangedEvent evt) {
+      if (!evt.keyboardLocked && finish()) {
+        future.complete(client);
+      }
+    }
+
+    // returns true if the attempt was in progress
+    private synchronized boolean finish() {
+      if (!inProgress) {
+        return false;
+      }
+      inProgress = false;
+      readyTimeout.cancel(false);
+      client.removeKeyboardStatusListener(this);
+      // later connections of the client notify its listener directly
+      client.setConnectionListener(clientListener);
+      permits.release();
+      scheduleDispatch(0);
+      return true;
+    }
+
+    // returns true if the attempt was in progress
+    private boolean fail(Exception ex) {
+      if (!finish()) {
+        return false;
+      }
+
+      // retried once disconnected, so the client is never connecting and disconnecting at once
+      runDisconnected(() -> retry(ex));
+      return true;
+    }
+
+    private void retry(Exception ex) {
+      if (attempts >= maxAttempts || scheduler.isShutdown()) {
+        future.completeExceptionally(ex);
+        return;
+      }
+
+      long backoff = backoffMillis(attempts);
+      LOG.debug("Retrying connection to {}:{} in {}ms", host, port, backoff);
+      try {
+        scheduler.schedule(() -> {
+          pendingAttempts.add(this);
+          dispatch();
+        }, backoff, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        future.completeExceptionally(ex);
+      }
+    }
+
+    // fails the attempt whatever its state, disconnecting the client if it was connecting
+    private void abort(Exception ex) {
+      if (finish()) {
+        runDisconnected(() -> { });
+      }
+      future.completeExceptionally(ex);
+    }
+
+    private void runDisconnected(Runnable action) {
+      Runnable task = () -> {
+        disconnect();
+        action.run();
+      };
+      try {
+        disconnector.execute(task);
+      } catch (RejectedExecutionException e) {
+        // only once the connector is closed, when there is nothing left to dispatch
+        task.run();
+      }
+    }
+
+    private void disconnect() {
+      try {
+        client.disconnect();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        LOG.debug("Problem disconnecting failed connection", e);
+      }
+    }
+
+    @Override
+    public void onConnection() {
+      if (clientListener != null) {
+        clientListener.onConnection();
+      }
+    }
+
+    @Override
+    public void onException(Exception ex) {
+      boolean connecting = fail(ex);
+      if (clientListener != null) {
+        clientListener.onException(ex);
+      } else if (!connecting) {
+        LOG.error("Problem with connection to {}:{}", host, port, ex);
+      }
+    }
+
+    @Override
+    public void onConnectionClosed() {
+      fail(new IllegalStateException("Connection closed by server while connecting"));
+      if (clientListener != null) {
+        clientListener.onConnectionClosed();
+      }
+    }
+
+  }
+
+}
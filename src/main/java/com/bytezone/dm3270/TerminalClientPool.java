@@ -0,0 +1,417 @@
+package com.bytezone.dm3270;
+
+import com.bytezone.dm3270.application.KeyboardStatusChangedEvent;
+import com.bytezone.dm3270.application.KeyboardStatusListener;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of clients connected to a terminal server, which avoids the cost of connection and
+ * negotiation each time a session is needed.
+ * <p>
+ * Sessions are created in background until the pool reaches its size, and are considered ready
+ * once the keyboard is unlocked and the optional {@link SessionWarmer} has run. Sessions which are
+ * disconnected, returned with the keyboard locked or left idle for too long are discarded and
+ * replaced by new ones.
+ */
+public class TerminalClientPool implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TerminalClientPool.class);
+
+  private final Supplier<TerminalClient> clientFactory;
+  private final String host;
+  private final int port;
+  private final int size;
+  private SessionWarmer sessionWarmer;
+  private long readyTimeoutMillis = 30000;
+  private long maxIdleMillis;
+  private long maintenancePeriodMillis = 1000;
+
+  // most recently returned sessions are leased first, so the rest may be evicted when idle
+  private final LinkedBlockingDeque<PooledClient> idleClients = new LinkedBlockingDeque<>();
+  private final Set<TerminalClient> leasedClients = ConcurrentHashMap.newKeySet();
+  private final Set<ClientReadiness> creatingClients = ConcurrentHashMap.newKeySet();
+  private ScheduledExecutorService maintenanceExecutor;
+  // warms up and discards new sessions, which may take long, out of the maintenance thread
+  private ExecutorService sessionExecutor;
+  private volatile boolean closed;
+
+  private final AtomicLong leaseCount = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  /**
+   * Allows preparing a newly connected session before it is available for lease, like driving it
+   * to a known screen.
+   */
+  @FunctionalInterface
+  public interface SessionWarmer {
+
+    void warmUp(TerminalClient client) throws Exception;
+
+  }
+
+  /**
+   * Creates a pool of clients connecting to the given terminal server.
+   *
+   * @param clientFactory creates the clients of the pool, already configured but not connected.
+   * @param host host name of the terminal server.
+   * @param port port where the terminal server is listening for connections.
+   * @param size number of sessions to keep in the pool, including the leased ones.
+   */
+  public TerminalClientPool(Supplier<TerminalClient> clientFactory, String host, int port,
+      int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Size must be greater than 0: " + size);
+    }
+    this.clientFactory = clientFactory;
+    this.host = host;
+    this.port = port;
+    this.size = size;
+  }
+
+  /**
+   * Sets the warmer to prepare sessions before they are available for lease.
+   *
+   * @param sessionWarmer the warmer to run on each new session after the keyboard is unlocked. If
+   * none is specified sessions are leased in the first screen sent by the server.
+   */
+  public void setSessionWarmer(SessionWarmer sessionWarmer) {
+    this.sessionWarmer = sessionWarmer;
+  }
+
+  /**
+   * Sets the time a new session has to get ready before it is discarded.
+   *
+   * @param readyTimeoutMillis millis to wait for the keyboard to be unlocked after connecting. By
+   * default 30 seconds.
+   */
+  public void setReadyTimeoutMillis(long readyTimeoutMillis) {
+    this.readyTimeoutMillis = readyTimeoutMillis;
+  }
+
+  /**
+   * Sets the time a session may stay in the pool without being leased before it is replaced.
+   *
+   * @param maxIdleMillis millis after which an idle session is disconnected. If not specified (or
+   * 0) idle sessions are kept indefinitely.
+   */
+  public void setMaxIdleMillis(long maxIdleMillis) {
+    this.maxIdleMillis = maxIdleMillis;
+  }
+
+  /**
+   * Sets the period of the checks of idle sessions, and creation of the missing ones.
+   *
+   * @param maintenancePeriodMillis millis between checks. By default 1 second.
+   */
+  public void setMaintenancePeriodMillis(long maintenancePeriodMillis) {
+    this.maintenancePeriodMillis = maintenancePeriodMillis;
+  }
+
+  /**
+   * Starts creating the sessions of the pool in background.
+   */
+  public synchronized void start() {
+    if (maintenanceExecutor != null) {
+      return;
+    }
+    maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "dm3270-pool-" + host + ":" + port);
+      thread.setDaemon(true);
+      return thread;
+    });
+    sessionExecutor = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "dm3270-pool-session-" + host + ":" + port);
+      thread.setDaemon(true);
+      return thread;
+    });
+    maintenanceExecutor.scheduleWithFixedDelay(this::maintain, 0, maintenancePeriodMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void maintain() {
+    evictIdleClients();
+    // leased sessions closed by the server are never usable again, even if not yet released
+    int missing = size - idleClients.size() - countConnected(leasedClients)
+        - creatingClients.size();
+
+    // sessions get ready in background, so maintenance goes on while they connect
+    for (int i = 0; i < missing && !closed; i++) {
+      TerminalClient client;
+      try {
+        client = clientFactory.get();
+      } catch (RuntimeException e) {
+        // created again on the next check
+        LOG.warn("Could not create session with {}:{}", host, port, e);
+        return;
+      }
+      new ClientReadiness(client).start();
+    }
+  }
+
+  private static int countConnected(Set<TerminalClient> clients) {
+    int count = 0;
+    for (TerminalClient client : clients) {
+      if (client.isConnected()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void evictIdleClients() {
+    long now = System.currentTimeMillis();
+    for (PooledClient pooledClient : idleClients) {
+      boolean expired = maxIdleMillis > 0 && now - pooledClient.idleSince > maxIdleMillis;
+      if ((expired || !pooledClient.client.isConnected())
+          && idleClients.remove(pooledClient)) {
+        LOG.debug("Evicting {} session", expired ? "idle" : "disconnected");
+        discard(pooledClient.client);
+      }
+    }
+  }
+
+  private void discard(TerminalClient client) {
+    try {
+      client.disconnect();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      LOG.debug("Problem disconnecting discarded session", e);
+    }
+  }
+
+  /**
+   * Leases a ready session from the pool, waiting for one to be available if necessary.
+   * <p>
+   * The session must be returned with {@link #release(TerminalClient)} when no longer needed.
+   *
+   * @param timeoutMillis maximum number of millis to wait for a session.
+   * @return the leased client.
+   * @throws InterruptedException thrown when the wait is interrupted.
+   * @throws TimeoutException thrown when no session gets available in the given time.
+   */
+  public TerminalClient lease(long timeoutMillis) throws InterruptedException,
+      TimeoutException {
+    if (closed) {
+      throw new IllegalStateException("Pool is closed");
+    }
+
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    PooledClient pooledClient = idleClients.pollFirst(timeoutMillis, TimeUnit.MILLISECONDS);
+    // sessions may be closed by the server while idle
+    while (pooledClient != null && !pooledClient.client.isConnected()) {
+      discard(pooledClient.client);
+      pooledClient = idleClients.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+    if (pooledClient == null) {
+      throw new TimeoutException("No session available after " + timeoutMillis + "ms");
+    }
+
+    leasedClients.add(pooledClient.client);
+    recordWait(System.nanoTime() - start);
+    return pooledClient.client;
+  }
+
+  private void recordWait(long waitNanos) {
+    leaseCount.incrementAndGet();
+    totalWaitNanos.addAndGet(waitNanos);
+    maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+  }
+
+  /**
+   * Returns a leased session to the pool.
+   * <p>
+   * The session is only kept if it is still connected and its keyboard is unlocked, otherwise it
+   * is disconnected and replaced by a new one.
+   *
+   * @param client the client obtained from {@link #lease(long)}.
+   */
+  public void release(TerminalClient client) {
+    if (!leasedClients.remove(client)) {
+      throw new IllegalArgumentException("Client was not leased from this pool");
+    }
+
+    if (closed || !client.isConnected() || client.isKeyboardLocked()) {
+      LOG.debug("Discarding returned session which is not usable");
+      discard(client);
+      return;
+    }
+    idleClients.offerFirst(new PooledClient(client));
+  }
+
+  public int getIdleCount() {
+    return idleClients.size();
+  }
+
+  public int getLeasedCount() {
+    return leasedClients.size();
+  }
+
+  public long getLeaseCount() {
+    return leaseCount.get();
+  }
+
+  public long getAverageWaitMillis() {
+    long leases = leaseCount.get();
+    return leases == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / leases);
+  }
+
+  public long getMaxWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+  }
+
+  /**
+   * Disconnects all the idle sessions of the pool, and any session returned afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (maintenanceExecutor != null) {
+      maintenanceExecutor.shutdownNow();
+      sessionExecutor.shutdown();
+    }
+    for (ClientReadiness readiness : creatingClients) {
+      readiness.fail(new IllegalStateException("Pool is closed"));
+    }
+
+    PooledClient pooledClient = idleClients.poll();
+    while (pooledClient != null) {
+      discard(pooledClient.client);
+      pooledClient = idleClients.poll();
+    }
+  }
+
+  // gets a new session ready and adds it to the pool, or discards it if it fails to get ready
+  private final class ClientReadiness implements KeyboardStatusListener {
+
+    private final TerminalClient client;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private volatile ScheduledFuture<?> readyTimeout;
+
+    private ClientReadiness(TerminalClient client) {
+      this.client = client;
+    }
+
+    private void start() {
+      try {
+        readyTimeout = maintenanceExecutor.schedule(() -> fail(new TimeoutException(
+            "Keyboard not unlocked after " + readyTimeoutMillis + "ms")), readyTimeoutMillis,
+            TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // closed while maintaining, before connecting the session
+        return;
+      }
+      creatingClients.add(this);
+      client.addKeyboardStatusListener(this);
+      try {
+        client.connect(host, port);
+      } catch (RuntimeException e) {
+        fail(e);
+      }
+    }
+
+    @Override
+    public void keyboardStatusChanged(KeyboardStatusChangedEvent evt) {
+      if (evt.keyboardLocked || !finish()) {
+        return;
+      }
+      if (sessionWarmer == null) {
+        addClient();
+      } else {
+        // the warmer waits for the screens it sends, which the notifying thread processes
+        runInSessionExecutor(this::warmUp);
+      }
+    }
+
+    // returns true the first time, when the session was still getting ready
+    private boolean finish() {
+      if (!finished.compareAndSet(false, true)) {
+        return false;
+      }
+      ScheduledFuture<?> timeout = readyTimeout;
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+      client.removeKeyboardStatusListener(this);
+      return true;
+    }
+
+    private void warmUp() {
+      try {
+        sessionWarmer.warmUp(client);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        discardClient();
+        return;
+      } catch (Exception e) {
+        LOG.warn("Could not create session with {}:{}", host, port, e);
+        discardClient();
+        return;
+      }
+      addClient();
+    }
+
+    private void addClient() {
+      PooledClient pooledClient = new PooledClient(client);
+      idleClients.offerFirst(pooledClient);
+      // counted as idle before it stops being counted as creating, so it is never replaced
+      creatingClients.remove(this);
+      if (closed && idleClients.remove(pooledClient)) {
+        discard(client);
+      }
+    }
+
+    private void fail(Exception ex) {
+      if (!finish()) {
+        return;
+      }
+      if (!closed) {
+        LOG.warn("Could not create session with {}:{}", host, port, ex);
+      }
+      runInSessionExecutor(this::discardClient);
+    }
+
+    private void discardClient() {
+      discard(client);
+      creatingClients.remove(this);
+    }
+
+    private void runInSessionExecutor(Runnable task) {
+      try {
+        sessionExecutor.execute(task);
+      } catch (RejectedExecutionException e) {
+        // the pool is closed, and the session is discarded in the calling thread
+        discardClient();
+      }
+    }
+
+  }
+
+  private static final class PooledClient {
+
+    private final TerminalClient client;
+    private final long idleSince = System.currentTimeMillis();
+
+    private PooledClient(TerminalClient client) {
+      this.client = client;
+    }
+
+  }
+
+}
@@ -9,10 +9,22 @@ import com.bytezone.dm3270.display.FieldChangeListener;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.extended.CommandHeader;
 import com.bytezone.dm3270.extended.TN3270ExtendedCommand;
+import com.bytezone.dm3270.streams.DecodingQueue;
+import com.bytezone.dm3270.streams.NioEventLoopGroup;
+import com.bytezone.dm3270.streams.NioTransport;
+import com.bytezone.dm3270.streams.SocketTransport;
+import com.bytezone.dm3270.streams.SslNioTransport;
+import com.bytezone.dm3270.streams.SslSessionCache;
 import com.bytezone.dm3270.streams.TelnetListener;
 import com.bytezone.dm3270.streams.TelnetState;
 import com.bytezone.dm3270.streams.TerminalServer;
+import com.bytezone.dm3270.streams.Transport;
+import com.bytezone.dm3270.streams.TransportFactory;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import java.util.concurrent.ThreadFactory;
 import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 
 public class ConsolePane implements FieldChangeListener, CursorMoveListener,
     KeyboardStatusListener {
@@ -24,9 +36,16 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
   private final SocketFactory socketFactory;
 
   private TerminalServer terminalServer;
-  private Thread terminalServerThread;
+  private NioEventLoopGroup eventLoopGroup;
+  private SSLContext sslContext;
+  private SslSessionCache sslSessionCache;
+  private int decodingQueueCapacity;
+  private DecodingQueue.BackpressurePolicy backpressurePolicy;
   private int connectionTimeoutMillis;
   private ConnectionListener connectionListener;
+  private TransportFactory transportFactory;
+  private ThreadFactory threadFactory;
+  private int maxRecordSize = TelnetProcessor.DEFAULT_MAX_RECORD_SIZE;
 
   public ConsolePane(Screen screen, Site server, SocketFactory socketFactory) {
     this.screen = screen;
@@ -47,6 +66,39 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
     this.connectionListener = connectionListener;
   }
 
+  public void setEventLoopGroup(NioEventLoopGroup eventLoopGroup) {
+    this.eventLoopGroup = eventLoopGroup;
+  }
+
+  public void setSslContext(SSLContext sslContext) {
+    this.sslContext = sslContext;
+  }
+
+  public void setSslSessionCache(SslSessionCache sslSessionCache) {
+    this.sslSessionCache = sslSessionCache;
+  }
+
+  public void setDecodingQueue(int capacity, DecodingQueue.BackpressurePolicy backpressurePolicy) {
+    this.decodingQueueCapacity = capacity;
+    this.backpressurePolicy = backpressurePolicy;
+  }
+
+  public void setTransportFactory(TransportFactory transportFactory) {
+    this.transportFactory = transportFactory;
+  }
+
+  public void setThreadFactory(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+  }
+
+  public void setMaxRecordSize(int maxRecordSize) {
+    this.maxRecordSize = maxRecordSize;
+  }
+
+  public DecodingQueue getDecodingQueue() {
+    return terminalServer != null ? terminalServer.getDecodingQueue() : null;
+  }
+
   public void sendAID(byte aid, String name) {
     if (screen.isInsertMode()) {
       screen.toggleInsertMode();
@@ -71,9 +123,9 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
       CommandHeader header = new CommandHeader(buffer, screen.getCharset());
       TN3270ExtendedCommand extendedCommand = new TN3270ExtendedCommand(header, command,
           telnetState, screen.getCharset());
-      telnetState.write(extendedCommand.getTelnetData());
+      telnetState.write(extendedCommand);
     } else {
-      telnetState.write(command.getTelnetData());
+      telnetState.write(command);
     }
   }
 
@@ -87,14 +139,51 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
     telnetState.setDoTerminalType(true);
 
     TelnetListener telnetListener = new TelnetListener(screen, telnetState);
+    telnetListener.setMaxRecordSize(maxRecordSize);
     terminalServer =
-        new TerminalServer(server.getURL(), server.getPort(), socketFactory, telnetListener);
+        new TerminalServer(server.getURL(), server.getPort(), buildTransport(), telnetListener);
     terminalServer.setConnectionTimeoutMillis(connectionTimeoutMillis);
     terminalServer.setConnectionListener(connectionListener);
+    if (decodingQueueCapacity > 0) {
+      terminalServer.setDecodingQueue(decodingQueueCapacity, backpressurePolicy, null);
+    }
     telnetState.setTerminalServer(terminalServer);
 
-    terminalServerThread = new Thread(terminalServer);
-    terminalServerThread.start();
+    terminalServer.connect();
+  }
+
+  private Transport buildTransport() {
+    if (transportFactory != null) {
+      return transportFactory.createTransport();
+    }
+
+    if (eventLoopGroup == null) {
+      SocketTransport transport = new SocketTransport(
+          sslContext != null ? sslContext.getSocketFactory() : socketFactory);
+      transport.setSslSessionCache(sslSessionCache);
+      if (threadFactory != null) {
+        transport.setThreadFactory(threadFactory);
+      }
+      return transport;
+    }
+
+    if (sslContext != null) {
+      SslNioTransport transport = new SslNioTransport(eventLoopGroup, sslContext);
+      transport.setSslSessionCache(sslSessionCache);
+      return transport;
+    }
+
+    // non blocking channels can't be created from a socket factory
+    if (socketFactory instanceof SSLSocketFactory) {
+      throw new IllegalArgumentException(
+          "SSL socket factory is not supported with an event loop group, set an SSL context "
+              + "instead");
+    }
+    return new NioTransport(eventLoopGroup);
+  }
+
+  public boolean isConnected() {
+    return terminalServer != null && terminalServer.isConnected();
   }
 
   public void disconnect() throws InterruptedException {
@@ -102,11 +191,7 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
 
     if (terminalServer != null) {
       terminalServer.close();
-    }
-
-    if (terminalServerThread != null) {
-      terminalServerThread.interrupt();
-      terminalServerThread.join();
+      terminalServer.awaitTermination();
     }
   }
 
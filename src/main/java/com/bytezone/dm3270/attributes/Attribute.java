@@ -2,6 +2,7 @@ package com.bytezone.dm3270.attributes;
 
 import com.bytezone.dm3270.display.ScreenContext;
 import java.util.Optional;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,17 +64,17 @@ public abstract class Attribute {
   public static Optional<Attribute> getAttribute(byte attributeCode, byte attributeValue) {
     switch (attributeCode) {
       case 0:
-        return Optional.of(new ResetAttribute(attributeValue));
+        return Flyweights.RESET[attributeValue & 0xFF];
       case XA_START_FIELD:
         return Optional.of(new StartFieldAttribute(attributeValue));
       case XA_HIGHLIGHTING:
-        return Optional.of(new ExtendedHighlight(attributeValue));
+        return Flyweights.HIGHLIGHT[attributeValue & 0xFF];
       case XA_BGCOLOR:
-        return Optional.of(new BackgroundColor(attributeValue));
+        return Flyweights.BACKGROUND_COLOR[attributeValue & 0xFF];
       case XA_FGCOLOR:
-        return Optional.of(new ForegroundColor(attributeValue));
+        return Flyweights.FOREGROUND_COLOR[attributeValue & 0xFF];
       case XA_CHARSET:
-        return Optional.of(new Charset(attributeValue));
+        return Flyweights.CHARSET[attributeValue & 0xFF];
       case XA_VALIDATION:
         LOG.warn("Validation not written");
         return Optional.empty();
@@ -123,4 +124,25 @@ public abstract class Attribute {
     return String.format("%-12s : %02X", name(), attributeValue);
   }
 
+  // Attributes other than start field ones are immutable, so a single instance of each code and
+  // value is shared, built when the first attribute is requested.
+  private static final class Flyweights {
+
+    private static final Optional<Attribute>[] RESET = build(ResetAttribute::new);
+    private static final Optional<Attribute>[] HIGHLIGHT = build(ExtendedHighlight::new);
+    private static final Optional<Attribute>[] BACKGROUND_COLOR = build(BackgroundColor::new);
+    private static final Optional<Attribute>[] FOREGROUND_COLOR = build(ForegroundColor::new);
+    private static final Optional<Attribute>[] CHARSET = build(Charset::new);
+
+    @SuppressWarnings("unchecked")
+    private static Optional<Attribute>[] build(Function<Byte, Attribute> constructor) {
+      Optional<Attribute>[] attributes = new Optional[256];
+      for (int value = 0; value < attributes.length; value++) {
+        attributes[value] = Optional.of(constructor.apply((byte) value));
+      }
+      return attributes;
+    }
+
+  }
+
 }
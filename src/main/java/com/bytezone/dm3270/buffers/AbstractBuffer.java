@@ -33,6 +33,12 @@ public abstract class AbstractBuffer implements Buffer {
     return buffer;
   }
 
+  @Override
+  public void encodeTelnetData(TelnetEncoder encoder) {
+    encoder.writeEscaped(data, 0, data.length);
+    encoder.endRecord();
+  }
+
   protected int countFF(byte[] buffer) {
     int count = 0;
     for (byte b : buffer) {
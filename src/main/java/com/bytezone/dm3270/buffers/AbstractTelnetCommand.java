@@ -17,4 +17,9 @@ public abstract class AbstractTelnetCommand extends AbstractReplyBuffer {
     return data;        // do not expand anything, do not append EOR bytes
   }
 
+  @Override
+  public void encodeTelnetData(TelnetEncoder encoder) {
+    encoder.writeRaw(data);
+  }
+
 }
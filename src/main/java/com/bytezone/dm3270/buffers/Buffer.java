@@ -44,6 +44,11 @@ public interface Buffer {
 
   byte[] getTelnetData();
 
+  // same bytes as getTelnetData, written straight into the encoder
+  default void encodeTelnetData(TelnetEncoder encoder) {
+    encoder.writeRaw(getTelnetData());
+  }
+
   int size();
 
   void process(Screen screen);
@@ -56,6 +56,13 @@ public class MultiBuffer implements Buffer {
     return returnBuffer;
   }
 
+  @Override
+  public void encodeTelnetData(TelnetEncoder encoder) {
+    for (Buffer buffer : buffers) {
+      buffer.encodeTelnetData(encoder);
+    }
+  }
+
   @Override
   public int size() {
     int size = 0;
@@ -0,0 +1,82 @@
+package com.bytezone.dm3270.buffers;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Frames outbound messages into a reusable array, doubling any 0xFF data byte in the same pass
+// which copies the data, so messages are sent without building intermediate arrays.
+public class TelnetEncoder {
+
+  private static final byte IAC = (byte) 0xFF;
+  private static final byte EOR = (byte) 0xEF;
+
+  private byte[] buffer;
+  private ByteBuffer byteBuffer;
+  private int size;
+
+  public TelnetEncoder() {
+    this(1024);
+  }
+
+  public TelnetEncoder(int initialCapacity) {
+    buffer = new byte[initialCapacity];
+    byteBuffer = ByteBuffer.wrap(buffer);
+  }
+
+  public void writeEscaped(byte[] data, int offset, int length) {
+    ensureCapacity(size + length * 2);           // in case every byte is an IAC
+
+    int end = offset + length;
+    int runStart = offset;
+    for (int ptr = offset; ptr < end; ptr++) {
+      if (data[ptr] == IAC) {
+        int runLength = ptr + 1 - runStart;
+        System.arraycopy(data, runStart, buffer, size, runLength);
+        size += runLength;
+        buffer[size++] = IAC;                    // double the data 0xFF
+        runStart = ptr + 1;
+      }
+    }
+    System.arraycopy(data, runStart, buffer, size, end - runStart);
+    size += end - runStart;
+  }
+
+  public void writeRaw(byte[] data) {
+    ensureCapacity(size + data.length);
+    System.arraycopy(data, 0, buffer, size, data.length);
+    size += data.length;
+  }
+
+  public void endRecord() {
+    ensureCapacity(size + 2);
+    buffer[size++] = IAC;
+    buffer[size++] = EOR;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+      byteBuffer = ByteBuffer.wrap(buffer);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void reset() {
+    size = 0;
+  }
+
+  // valid until the next change to the encoder
+  public ByteBuffer getByteBuffer() {
+    byteBuffer.clear();
+    byteBuffer.limit(size);
+    return byteBuffer;
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+
+}
@@ -1,22 +1,37 @@
 package com.bytezone.dm3270.commands;
 
 import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.buffers.TelnetEncoder;
 import com.bytezone.dm3270.display.Cursor;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.orders.Order;
 import com.bytezone.dm3270.orders.TextOrder;
-import java.util.ArrayList;
 import java.util.List;
 
+// The command is a view over the received record, which is only valid while the command is
+// processed, so the record is not copied unless its data is requested. Unless the orders were
+// already parsed while the record was received, they are executed straight from the record, and
+// only parsed into Order objects when they are described.
 public class WriteCommand extends Command {
 
+  private final byte[] record;
+  private final int offset;
+  private final int length;
   private final boolean eraseWrite;
   private final boolean alternate;
   private final WriteControlCharacter writeControlCharacter;
-  private final List<Order> orders = new ArrayList<>();
+  private final Charset charset;
+  private List<Order> orders;
 
   public WriteCommand(byte[] buffer, int offset, int length, Charset charset) {
-    super(buffer, offset, length);
+    this(buffer, offset, length, charset, null);
+  }
+
+  // orders already parsed by a WriteCommandParser, or null to execute them from the record
+  WriteCommand(byte[] buffer, int offset, int length, Charset charset, List<Order> orders) {
+    record = buffer;
+    this.offset = offset;
+    this.length = length;
 
     assert buffer[offset] == Command.WRITE_01 || buffer[offset] == Command.WRITE_F1
         || buffer[offset] == Command.ERASE_WRITE_05
@@ -29,23 +44,34 @@ public class WriteCommand extends Command {
         || buffer[offset] == Command.ERASE_WRITE_ALTERNATE_7E;
     writeControlCharacter =
         length > 1 ? new WriteControlCharacter(buffer[offset + 1]) : null;
+    this.charset = charset;
+    this.orders = orders;
+  }
 
-    int ptr = offset + 2;
-    Order previousOrder = null;
+  @Override
+  public byte[] getData() {
+    if (data.length != length) {
+      data = new byte[length];
+      System.arraycopy(record, offset, data, 0, length);
+    }
+    return data;
+  }
 
-    int max = offset + length;
-    while (ptr < max) {
-      Order order = Order.getOrder(buffer, ptr, max, charset);
+  @Override
+  public int size() {
+    return length;
+  }
 
-      if (order.matchesPreviousOrder(previousOrder)) {
-        previousOrder.incrementDuplicates();           // and discard this Order
-      } else {
-        orders.add(order);
-        previousOrder = order;
-      }
+  @Override
+  public byte[] getTelnetData() {
+    getData();
+    return super.getTelnetData();
+  }
 
-      ptr += order.size();
-    }
+  @Override
+  public void encodeTelnetData(TelnetEncoder encoder) {
+    encoder.writeEscaped(record, offset, length);
+    encoder.endRecord();
   }
 
   @Override
@@ -63,9 +89,20 @@ public class WriteCommand extends Command {
       screen.lockKeyboard("Write");
     }
 
-    if (orders.size() > 0) {
-      for (Order order : orders) {
-        order.process(screen);         // modifies pen
+    boolean hasOrders = orders == null ? length > 2 : orders.size() > 0;
+    if (hasOrders) {
+      // an erase write draws the same screen whenever it has the same orders
+      if (!eraseWrite || !screen.restoreScreenImage(record, offset + 2, length - 2)) {
+        if (orders == null) {
+          WriteOrderInterpreter.execute(record, offset + 2, offset + length, screen);
+        } else {
+          for (Order order : orders) {
+            order.process(screen);     // modifies pen
+          }
+        }
+        if (eraseWrite) {
+          screen.cacheScreenImage(record, offset + 2, length - 2);
+        }
       }
 
       cursor.moveTo(cursorLocation);
@@ -82,7 +119,7 @@ public class WriteCommand extends Command {
 
     // should check for suppressDisplay
     if (!screen.isKeyboardLocked() && screen.getFieldManager().size() > 0) {
-      if (orders.size() > 0 || !writeControlCharacter.isResetModified()) {
+      if (hasOrders || !writeControlCharacter.isResetModified()) {
         setReply(null);
       }
     }
@@ -98,8 +135,16 @@ public class WriteCommand extends Command {
     return eraseWrite ? alternate ? "Erase Write Alternate" : "Erase Write" : "Write";
   }
 
+  private List<Order> getOrders() {
+    if (orders == null) {
+      orders = new WriteCommandParser(offset, charset).parseOrders(record, offset + length, true);
+    }
+    return orders;
+  }
+
   @Override
   public String toString() {
+    List<Order> orders = getOrders();
     StringBuilder text = new StringBuilder();
     text.append(getName());
     text.append("\nWCC : ").append(writeControlCharacter);
@@ -0,0 +1,75 @@
+package com.bytezone.dm3270.commands;
+
+import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.orders.Order;
+import java.util.ArrayList;
+import java.util.List;
+
+// Parses the orders of a write command while its record is still being received, so when the
+// record is complete only the orders of the last segment are left to parse. Orders parsed before
+// the record is complete are detached from the given buffer, so it may be reused between calls,
+// while the ones parsed when finishing are views over the record.
+public class WriteCommandParser {
+
+  // orders may be incomplete when starting this close to the last received byte, since start
+  // field extended and modify field orders may have up to 255 attribute pairs
+  private static final int MAX_ORDER_SIZE = 2 + 255 * 2;
+
+  private final int commandOffset;
+  private final Charset charset;
+  private final List<Order> orders = new ArrayList<>();
+  private Order previousOrder;
+  private int ptr;
+
+  public WriteCommandParser(int commandOffset, Charset charset) {
+    this.commandOffset = commandOffset;
+    this.charset = charset;
+    this.ptr = commandOffset + 2;         // skip command and WCC
+  }
+
+  public static boolean isWriteCommand(byte command) {
+    switch (command) {
+      case Command.WRITE_F1:
+      case Command.WRITE_01:
+      case Command.ERASE_WRITE_F5:
+      case Command.ERASE_WRITE_05:
+      case Command.ERASE_WRITE_ALTERNATE_7E:
+      case Command.ERASE_WRITE_ALTERNATE_0D:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // buffer contains the bytes of the record received so far, up to max
+  public void parse(byte[] buffer, int max) {
+    // text orders stopping at the limit are completed by the next text order
+    parseOrders(buffer, max - MAX_ORDER_SIZE, true);
+  }
+
+  List<Order> parseOrders(byte[] buffer, int max, boolean detach) {
+    while (ptr < max) {
+      Order order = Order.getOrder(buffer, ptr, max, charset);
+      if (detach) {
+        order.detach();
+      }
+
+      if (order.matchesPreviousOrder(previousOrder)) {
+        previousOrder.incrementDuplicates();           // and discard this Order
+      } else {
+        orders.add(order);
+        previousOrder = order;
+      }
+
+      ptr += order.size();
+    }
+    return orders;
+  }
+
+  public WriteCommand finish(byte[] buffer, int offset, int length) {
+    assert offset == commandOffset : "Record moved from " + commandOffset + " to " + offset;
+    return new WriteCommand(buffer, offset, length, charset,
+        parseOrders(buffer, offset + length, false));
+  }
+
+}
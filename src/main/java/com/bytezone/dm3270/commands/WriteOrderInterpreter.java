@@ -0,0 +1,178 @@
+package com.bytezone.dm3270.commands;
+
+import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.display.DisplayScreen;
+import com.bytezone.dm3270.display.Pen;
+import com.bytezone.dm3270.orders.BufferAddress;
+import com.bytezone.dm3270.orders.Order;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Executes the orders of a write command straight from the record bytes into the pen, with the
+// same effect as processing the orders parsed by a WriteCommandParser but without creating them.
+final class WriteOrderInterpreter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WriteOrderInterpreter.class);
+
+  private WriteOrderInterpreter() {
+  }
+
+  static void execute(byte[] buffer, int ptr, int max, DisplayScreen screen) {
+    Pen pen = screen.getPen();
+    boolean previousText = false;
+
+    while (ptr < max) {
+      byte value = buffer[ptr];
+      if (!Order.isOrder(value)) {
+        pen.write(value);
+        ptr++;
+        previousText = true;
+        continue;
+      }
+
+      switch (value) {
+        case Order.START_FIELD:
+          if (isTruncated(ptr, 2, max)) {
+            return;
+          }
+          pen.startField(new StartFieldAttribute(buffer[ptr + 1]));
+          pen.moveRight();
+          ptr += 2;
+          break;
+
+        case Order.START_FIELD_EXTENDED:
+          if (isTruncated(ptr, 2, max)
+              || isTruncated(ptr, (buffer[ptr + 1] & 0xFF) * 2 + 2, max)) {
+            return;
+          }
+          ptr = startFieldExtended(buffer, ptr, pen);
+          break;
+
+        case Order.SET_BUFFER_ADDRESS:
+          if (isTruncated(ptr, 3, max)) {
+            return;
+          }
+          pen.moveTo(BufferAddress.decodeLocation(buffer[ptr + 1], buffer[ptr + 2]));
+          ptr += 3;
+          break;
+
+        case Order.SET_ATTRIBUTE:
+          if (isTruncated(ptr, 3, max)) {
+            return;
+          }
+          Optional<Attribute> attribute = Attribute.getAttribute(buffer[ptr + 1], buffer[ptr + 2]);
+          attribute.ifPresent(pen::addAttribute);
+          ptr += 3;
+          break;
+
+        case Order.MODIFY_FIELD:
+          if (isTruncated(ptr, 2, max)
+              || isTruncated(ptr, (buffer[ptr + 1] & 0xFF) * 2 + 2, max)) {
+            return;
+          }
+          ptr += (buffer[ptr + 1] & 0xFF) * 2 + 2;
+          break;
+
+        case Order.INSERT_CURSOR:
+          screen.insertCursor(pen.getPosition());
+          ptr++;
+          break;
+
+        case Order.PROGRAM_TAB:
+          // if the previous data was text then erase the remainder of the field
+          if (previousText) {
+            pen.eraseEOF();
+          }
+          pen.tab();
+          ptr++;
+          break;
+
+        case Order.REPEAT_TO_ADDRESS:
+          if (isTruncated(ptr, 4, max)
+              || buffer[ptr + 3] == Order.GRAPHICS_ESCAPE && isTruncated(ptr, 5, max)) {
+            return;
+          }
+          ptr = repeatToAddress(buffer, ptr, screen);
+          break;
+
+        case Order.ERASE_UNPROTECTED:
+          LOG.warn("EraseUnprotectedToAddress not finished");
+          ptr += 3;
+          break;
+
+        case Order.GRAPHICS_ESCAPE:
+          if (isTruncated(ptr, 2, max)) {
+            return;
+          }
+          pen.writeGraphics(buffer[ptr + 1]);
+          ptr += 2;
+          break;
+
+        case Order.FCO_NEWLINE:
+          pen.moveToNextLine();
+          ptr++;
+          break;
+
+        default:                                  // all other format control orders
+          pen.write((byte) 0x40);
+          ptr++;
+      }
+      previousText = false;
+    }
+  }
+
+  // the record is usually in a buffer shared with the following data, so an order cut by the end
+  // of the record would read bytes not belonging to it. Such orders are ignored, with the rest of
+  // the record.
+  private static boolean isTruncated(int ptr, int length, int max) {
+    if (ptr + length <= max) {
+      return false;
+    }
+    LOG.warn("Ignoring order at offset {} truncated by the end of the record", ptr);
+    return true;
+  }
+
+  private static int startFieldExtended(byte[] buffer, int offset, Pen pen) {
+    int max = offset + 2 + (buffer[offset + 1] & 0xFF) * 2;
+
+    // there has to be a start field attribute, but it could be anywhere in the list
+    StartFieldAttribute startFieldAttribute = null;
+    for (int ptr = offset + 2; ptr < max; ptr += 2) {
+      if (buffer[ptr] == Attribute.XA_START_FIELD) {
+        startFieldAttribute = new StartFieldAttribute(buffer[ptr + 1]);
+      }
+    }
+    if (startFieldAttribute != null) {
+      startFieldAttribute.setExtended();
+      pen.startField(startFieldAttribute);
+    }
+
+    for (int ptr = offset + 2; ptr < max; ptr += 2) {
+      if (buffer[ptr] != Attribute.XA_START_FIELD) {
+        Attribute.getAttribute(buffer[ptr], buffer[ptr + 1]).ifPresent(pen::addAttribute);
+      }
+    }
+
+    pen.moveRight();
+    return max;
+  }
+
+  private static int repeatToAddress(byte[] buffer, int offset, DisplayScreen screen) {
+    int stopLocation = BufferAddress.decodeLocation(buffer[offset + 1], buffer[offset + 2]);
+    boolean graphic = buffer[offset + 3] == Order.GRAPHICS_ESCAPE;
+    byte repeatChar = graphic ? buffer[offset + 4] : buffer[offset + 3];
+
+    Pen pen = screen.getPen();
+    if (pen.getPosition() == stopLocation) {
+      screen.clearScreen();
+    } else {
+      while (pen.getPosition() != stopLocation) {
+        pen.write(repeatChar);
+      }
+    }
+    return offset + (graphic ? 6 : 4);
+  }
+
+}
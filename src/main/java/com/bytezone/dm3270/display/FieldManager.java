@@ -37,13 +37,24 @@ public class FieldManager {
   }
 
   // this is called after the pen and screen positions have been modified
-  public void buildFields(ScreenPosition[] screenPositions) {
+  void buildFields(ScreenBuffer buffer) {
+    // fields only depend on the contents of the positions, so they are kept when none changed
+    if (buffer.isChanged()) {
+      rebuildFields(buffer);
+    }
+
+    screenWatcher.check();
+    // taken after setting the contexts, so the positions whose context changed are included
+    fireScreenChanged(screenWatcher, buffer.takeChanges());
+  }
+
+  private void rebuildFields(ScreenBuffer buffer) {
     reset();
 
     //to avoid inefficiency when coping and adding in a 
     // CopyOnWriteArrayList we use this list to add all at once;
     List<Field> auxFields = new ArrayList<>();
-    for (List<ScreenPosition> protoField : divide(screenPositions)) {
+    for (List<ScreenPosition> protoField : divide(buffer)) {
       auxFields.add(new Field(screen, protoField));
       setContexts(protoField);
     }
@@ -79,9 +90,6 @@ public class FieldManager {
         }
       }
     }
-
-    screenWatcher.check();
-    fireScreenChanged(screenWatcher);
   }
 
   private void addField(Field field) {
@@ -180,8 +188,8 @@ public class FieldManager {
   // ScreenChangeListeners
   // ---------------------------------------------------------------------------------//
 
-  private void fireScreenChanged(ScreenWatcher screenWatcher) {
-    screenChangeListeners.forEach(listener -> listener.screenChanged(screenWatcher));
+  private void fireScreenChanged(ScreenWatcher screenWatcher, ScreenChanges changes) {
+    screenChangeListeners.forEach(listener -> listener.screenChanged(screenWatcher, changes));
   }
 
   public void addScreenChangeListener(ScreenChangeListener listener) {
@@ -196,32 +204,21 @@ public class FieldManager {
   // Divide the ScreenPositions into fields
   // ---------------------------------------------------------------------------------//
 
-  private static List<List<ScreenPosition>> divide(ScreenPosition[] screenPositions) {
+  // each field goes from its start field position to the position before the next one
+  private static List<List<ScreenPosition>> divide(ScreenBuffer buffer) {
     List<List<ScreenPosition>> components = new ArrayList<>();
-    List<ScreenPosition> positions = new ArrayList<>();
-
-    boolean inField = false;
-    int ptr = 0;
-
-    while (ptr < screenPositions.length) {
-      ScreenPosition screenPosition = screenPositions[ptr++];
-
-      // check for the start of a new field
-      if (screenPosition.isStartField()) {
-        if (inField) {
-          components.add(new ArrayList<>(positions));
-          positions.clear();
+    int fieldStart = -1;
+    for (int ptr = 0; ptr < buffer.size(); ptr++) {
+      if (buffer.isStartField(ptr)) {
+        if (fieldStart >= 0) {
+          components.add(buffer.getPositions(fieldStart, ptr));
         }
-        inField = true;
-      }
-
-      if (inField) {
-        positions.add(screenPosition);
+        fieldStart = ptr;
       }
     }
 
-    if (inField && !positions.isEmpty()) {
-      components.add(new ArrayList<>(positions));
+    if (fieldStart >= 0) {
+      components.add(buffer.getPositions(fieldStart, buffer.size()));
     }
 
     return components;
@@ -0,0 +1,72 @@
+package com.bytezone.dm3270.display;
+
+/**
+ * Immutable copy of the properties and text of a {@link Field}, as part of a {@link
+ * ScreenSnapshot}.
+ */
+public final class FieldSnapshot {
+
+  private final int firstLocation;
+  private final int displayLength;
+  private final String text;
+  private final boolean isProtected;
+  private final boolean isHidden;
+  private final boolean isVisible;
+  private final boolean isModified;
+
+  FieldSnapshot(Field field) {
+    firstLocation = field.getFirstLocation();
+    displayLength = field.getDisplayLength();
+    text = field.getText();
+    isProtected = field.isProtected();
+    isHidden = field.isHidden();
+    isVisible = field.isVisible();
+    isModified = field.isModified();
+  }
+
+  // whether this copy still has the properties of the field, besides its text
+  boolean hasPropertiesOf(Field field) {
+    return firstLocation == field.getFirstLocation() && displayLength == field.getDisplayLength()
+        && isProtected == field.isProtected() && isHidden == field.isHidden()
+        && isVisible == field.isVisible() && isModified == field.isModified();
+  }
+
+  public int getFirstLocation() {
+    return firstLocation;
+  }
+
+  public int getDisplayLength() {
+    return displayLength;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public boolean isProtected() {
+    return isProtected;
+  }
+
+  public boolean isUnprotected() {
+    return !isProtected;
+  }
+
+  public boolean isHidden() {
+    return isHidden;
+  }
+
+  public boolean isVisible() {
+    return isVisible;
+  }
+
+  public boolean isModified() {
+    return isModified;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%04d %4d %s%s [%s]", firstLocation, displayLength,
+        isProtected ? 'P' : 'U', isModified ? 'M' : ' ', text);
+  }
+
+}
@@ -1,6 +1,5 @@
 package com.bytezone.dm3270.display;
 
-import com.bytezone.dm3270.Charset;
 import com.bytezone.dm3270.attributes.Attribute;
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
 import java.util.ArrayList;
@@ -13,7 +12,7 @@ class PenType1 implements Pen {
 
   private static final Logger LOG = LoggerFactory.getLogger(PenType1.class);
 
-  private final ScreenPosition[] screenPositions;   // owned by Screen
+  private final ScreenBuffer buffer;               // owned by Screen
 
   private int currentPosition;
   private boolean formattedScreen;
@@ -22,22 +21,17 @@ class PenType1 implements Pen {
   private final List<Attribute> pendingAttributes = new ArrayList<>();
 
   // created by Screen and HistoryScreen
-  PenType1(ScreenPosition[] screenPositions, ScreenDimensions screenDimensions,
-      Charset charset) {
-    this.screenPositions = screenPositions;
+  PenType1(ScreenBuffer buffer, ScreenDimensions screenDimensions) {
+    this.buffer = buffer;
     this.screenDimensions = screenDimensions;
-
-    for (int i = 0; i < screenPositions.length; i++) {
-      screenPositions[i] = new ScreenPosition(i, ScreenContext.DEFAULT_CONTEXT, charset);
-    }
   }
 
   @Override
   public void clearScreen() {
     currentPosition = 0;
-    for (ScreenPosition screenPosition : screenPositions) {
-      screenPosition.reset();
-    }
+    buffer.clear();
+    // attributes pending from before erasing must not be applied to the new screen
+    pendingAttributes.clear();
 
     formattedScreen = false;
   }
@@ -46,10 +40,8 @@ class PenType1 implements Pen {
   public void startField(StartFieldAttribute startFieldAttribute) {
     formattedScreen = true;
 
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-
-    screenPosition.reset();
-    screenPosition.setStartField(startFieldAttribute);
+    buffer.reset(currentPosition);
+    buffer.setStartField(currentPosition, startFieldAttribute);
 
     // sometimes a reset attribute is overwritten by a new SFA
     if (pendingAttributes.size() > 0) {
@@ -69,23 +61,19 @@ class PenType1 implements Pen {
 
   @Override
   public void writeGraphics(byte b) {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-    screenPosition.reset();
-    screenPosition.setAplGraphicChar(b);
+    buffer.write(currentPosition, b);
     moveRight();
   }
 
   @Override
   public void write(byte b) {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-    screenPosition.reset();
-    screenPosition.setChar(b);
+    buffer.write(currentPosition, b);
     moveRight();
   }
 
-  private void applyAttributes(ScreenPosition screenPosition) {
+  private void applyAttributes(int position) {
     for (Attribute attribute : pendingAttributes) {
-      screenPosition.addAttribute(attribute);
+      buffer.addAttribute(position, attribute);
     }
     pendingAttributes.clear();
   }
@@ -93,7 +81,7 @@ class PenType1 implements Pen {
   @Override
   public void moveRight() {
     if (pendingAttributes.size() > 0) {
-      applyAttributes(screenPositions[currentPosition]);
+      applyAttributes(currentPosition);
     }
 
     currentPosition = validate(currentPosition + 1);
@@ -102,7 +90,7 @@ class PenType1 implements Pen {
   @Override
   public void moveToNextLine() {
     if (pendingAttributes.size() > 0) {
-      applyAttributes(screenPositions[currentPosition]);
+      applyAttributes(currentPosition);
     }
     int currentRow = (currentPosition / screenDimensions.columns);
     currentPosition = validate((currentRow + 1) * screenDimensions.columns);
@@ -115,21 +103,16 @@ class PenType1 implements Pen {
       return;
     }
 
-    while (true) {
-      ScreenPosition screenPosition = screenPositions[currentPosition];
-      if (screenPosition.isStartField()) {
-        break;
-      }
-      screenPosition.setChar((byte) 0);
+    while (!buffer.isStartField(currentPosition)) {
+      buffer.setChar(currentPosition, (byte) 0);
       moveRight();
     }
   }
 
   @Override
   public void tab() {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
-    if (screenPosition.isStartField()
-        && !screenPosition.getStartFieldAttribute().isProtected()) {
+    if (buffer.isStartField(currentPosition)
+        && !buffer.getStartFieldAttribute(currentPosition).isProtected()) {
       currentPosition = validate(currentPosition + 1);
       return;
     }
@@ -141,8 +124,7 @@ class PenType1 implements Pen {
         currentPosition = 0;
         break;
       }
-      screenPosition = screenPositions[next];
-      if (!screenPosition.getStartFieldAttribute().isProtected()) {
+      if (!buffer.getStartFieldAttribute(next).isProtected()) {
         currentPosition = validate(next + 1);
         break;
       }
@@ -159,7 +141,7 @@ class PenType1 implements Pen {
         }
         LOG.debug("Unapplied attributes at {}: {}", currentPosition, attrs);
       }
-      applyAttributes(screenPositions[currentPosition]);
+      applyAttributes(currentPosition);
     }
     currentPosition = validate(position);
   }
@@ -168,9 +150,8 @@ class PenType1 implements Pen {
     int pos = position;
     while (true) {
       pos = validate(pos + 1);
-      ScreenPosition screenPosition = screenPositions[pos];
 
-      if (screenPosition.isStartField()) {
+      if (buffer.isStartField(pos)) {
         return pos;
       }
 
@@ -186,11 +167,11 @@ class PenType1 implements Pen {
   @Override
   public int validate(int position) {
     while (position < 0) {
-      position += screenPositions.length;
+      position += buffer.size();
     }
 
-    while (position >= screenPositions.length) {
-      position -= screenPositions.length;
+    while (position >= buffer.size()) {
+      position -= buffer.size();
     }
 
     return position;
@@ -209,12 +190,12 @@ class PenType1 implements Pen {
 
           @Override
           public boolean hasNext() {
-            return screenPositions.length > pos;
+            return buffer.size() > pos;
           }
 
           @Override
           public ScreenPosition next() {
-            return screenPositions[pos++];
+            return buffer.getPosition(pos++);
           }
 
           @Override
@@ -235,12 +216,12 @@ class PenType1 implements Pen {
 
       @Override
       public boolean hasNext() {
-        return screenPositions.length > pos;
+        return buffer.size() > pos;
       }
 
       @Override
       public ScreenPosition next() {
-        return screenPositions[pos++];
+        return buffer.getPosition(pos++);
       }
 
       @Override
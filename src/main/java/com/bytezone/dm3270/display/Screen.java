@@ -25,7 +25,7 @@ public class Screen implements DisplayScreen {
       {Attribute.XA_HIGHLIGHTING, Attribute.XA_FGCOLOR, Attribute.XA_CHARSET,
           Attribute.XA_BGCOLOR, Attribute.XA_TRANSPARENCY};
 
-  private final ScreenPosition[] screenPositions;
+  private final ScreenBuffer screenBuffer;
   private final FieldManager fieldManager;
   private final ScreenPacker screenPacker;
 
@@ -49,6 +49,9 @@ public class Screen implements DisplayScreen {
   private boolean keyboardLocked;
   private boolean insertMode;
   private boolean readModifiedAll = false;
+  private ScreenImageCache screenImageCache;
+  // published by the constructor, and then only by the thread processing the records
+  private volatile ScreenSnapshot snapshot;
 
   private final Set<KeyboardStatusListener> keyboardChangeListeners = ConcurrentHashMap.newKeySet();
 
@@ -72,12 +75,13 @@ public class Screen implements DisplayScreen {
 
     fieldManager = new FieldManager(this, screenDimensions);
 
-    screenPositions = new ScreenPosition[screenDimensions.size];
-    pen = Pen.getInstance(screenPositions, screenDimensions, charset);
+    screenBuffer = new ScreenBuffer(screenDimensions.size, ScreenContext.DEFAULT_CONTEXT, charset);
+    pen = new PenType1(screenBuffer, screenDimensions);
 
     screenPacker = new ScreenPacker(pen, fieldManager, charset);
 
     setCurrentScreen(currentOption);
+    publishSnapshot();
   }
 
   public TelnetState getTelnetState() {
@@ -93,6 +97,7 @@ public class Screen implements DisplayScreen {
     ScreenDimensions screenDimensions = getScreenDimensions();
 
     pen.setScreenDimensions(screenDimensions);
+    screenBuffer.setColumns(screenDimensions.columns);
     fieldManager.setScreenDimensions(screenDimensions);
 
     BufferAddress.setScreenWidth(screenDimensions.columns);
@@ -154,8 +159,50 @@ public class Screen implements DisplayScreen {
         .ifPresent(screenPositions1 -> cursor.moveTo(screenPositions1.getFirstLocation()));
   }
 
+  public void setScreenImageCache(ScreenImageCache screenImageCache) {
+    this.screenImageCache = screenImageCache;
+  }
+
+  // restores the screen drawn by the given orders of an erase write into the cleared screen
+  public boolean restoreScreenImage(byte[] buffer, int offset, int length) {
+    if (screenImageCache == null) {
+      return false;
+    }
+    ScreenImage image = screenImageCache.get(buffer, offset, length, getScreenDimensions());
+    if (image == null) {
+      return false;
+    }
+    image.restore(screenBuffer, pen);
+    insertedCursorPosition = image.getInsertedCursorPosition();
+    return true;
+  }
+
+  // keeps the screen just drawn by the given orders of an erase write, once they are repeated
+  public void cacheScreenImage(byte[] buffer, int offset, int length) {
+    if (screenImageCache != null
+        && screenImageCache.markSeen(buffer, offset, length, getScreenDimensions())) {
+      screenImageCache.put(buffer, offset, length, getScreenDimensions(),
+          new ScreenImage(screenBuffer, pen.getPosition(), insertedCursorPosition));
+    }
+  }
+
   public void buildFields() {
-    fieldManager.buildFields(screenPositions);        // what about resetModified?
+    fieldManager.buildFields(screenBuffer);               // what about resetModified?
+  }
+
+  // the text of the current screen dimensions, with a newline after each row
+  public String getScreenText() {
+    ScreenDimensions screenDimensions = getScreenDimensions();
+    return screenBuffer.getText(screenDimensions.rows, screenDimensions.columns);
+  }
+
+  // called after processing each record, so readers never see a partially processed one
+  public void publishSnapshot() {
+    snapshot = ScreenSnapshot.of(snapshot, this, screenBuffer);
+  }
+
+  public ScreenSnapshot getSnapshot() {
+    return snapshot;
   }
 
   public void checkRecording() {
@@ -197,8 +244,8 @@ public class Screen implements DisplayScreen {
 
   public void setPositionText(int position, String text) {
     byte[] bytes = getTextBytes(text);
-    for (int i = 0; i < bytes.length && position + i < screenPositions.length; i++) {
-      screenPositions[position + i].setChar(bytes[i]);
+    for (int i = 0; i < bytes.length && position + i < screenBuffer.size(); i++) {
+      screenBuffer.setChar(position + i, bytes[i]);
     }
   }
 
@@ -213,7 +260,7 @@ public class Screen implements DisplayScreen {
 
   @Override
   public ScreenPosition getScreenPosition(int position) {
-    return screenPositions[position];
+    return screenBuffer.getPosition(position);
   }
   
   @Override
@@ -0,0 +1,336 @@
+package com.bytezone.dm3270.display;
+
+import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+// Contents of the screen kept in parallel arrays indexed by position, instead of an object per
+// position, so scanning the screen reads contiguous memory. ScreenPosition objects are views over
+// a position of the buffer, kept for compatibility.
+final class ScreenBuffer {
+
+  private final byte[] values;
+  private final StartFieldAttribute[] startFields;
+  private final ScreenContext[] contexts;
+  // extended attributes are rare, so positions only get a list when they have any
+  private final List<Attribute>[] attributes;
+  private final Charset charset;
+  // views are created on first use, as most positions are only accessed through the buffer.
+  // Views have no state of their own, so creating one twice from different threads is harmless.
+  private final ScreenPosition[] positions;
+  private final int firstPosition;
+  // positions not written since the screen was last cleared have an older stamp, and are read as
+  // reset, so clearing the screen doesn't need to visit every position
+  private final int[] stamps;
+  private int epoch;
+  // each change gets the next change count, which is kept for its row, so each consumer of the
+  // changes finds the rows changed since the count it last saw. Counters are confined to the
+  // thread processing the records, other threads see them through the published snapshots.
+  private long changeCount;
+  private long[] rowChangeCounts;
+  private long takenChangeCount;
+  // range of positions changed since the changes were last taken
+  private int firstChanged;
+  private int lastChanged;
+  private int columns;
+
+  ScreenBuffer(int size, ScreenContext screenContext, Charset charset) {
+    this(size, screenContext, charset, 0);
+  }
+
+  // a buffer of a single position, for a ScreenPosition not belonging to a screen
+  ScreenBuffer(ScreenContext screenContext, Charset charset, int position) {
+    this(1, screenContext, charset, position);
+  }
+
+  @SuppressWarnings("unchecked")
+  private ScreenBuffer(int size, ScreenContext screenContext, Charset charset, int firstPosition) {
+    values = new byte[size];
+    startFields = new StartFieldAttribute[size];
+    contexts = new ScreenContext[size];
+    attributes = new List[size];
+    this.charset = charset;
+    positions = new ScreenPosition[size];
+    this.firstPosition = firstPosition;
+    stamps = new int[size];
+    Arrays.fill(contexts, screenContext);
+    columns = size;
+    rowChangeCounts = new long[1];
+    markAllChanged();
+  }
+
+  int size() {
+    return values.length;
+  }
+
+  // the positions from the given index (inclusive) to the given one (exclusive)
+  List<ScreenPosition> getPositions(int fromIndex, int toIndex) {
+    List<ScreenPosition> range = new ArrayList<>(toIndex - fromIndex);
+    for (int i = fromIndex; i < toIndex; i++) {
+      range.add(getPosition(i));
+    }
+    return range;
+  }
+
+  ScreenPosition getPosition(int index) {
+    ScreenPosition position = positions[index];
+    if (position == null) {
+      position = new ScreenPosition(this, index, firstPosition + index);
+      positions[index] = position;
+    }
+    return position;
+  }
+
+  // the whole screen changes, as its positions are laid out in other rows
+  void setColumns(int columns) {
+    this.columns = columns;
+    rowChangeCounts = new long[(values.length + columns - 1) / columns];
+    markAllChanged();
+  }
+
+  // contexts are kept, as when resetting a position
+  void clear() {
+    epoch++;
+    if (epoch == 0) {
+      // stamps of 2^32 clears ago would be current again
+      for (int i = 0; i < values.length; i++) {
+        reset(i);
+      }
+    }
+    markAllChanged();
+  }
+
+  void reset(int index) {
+    values[index] = 0;
+    startFields[index] = null;
+    clearAttributes(index);
+    stamps[index] = epoch;
+    markChanged(index);
+  }
+
+  private void markChanged(int index) {
+    if (index < firstChanged) {
+      firstChanged = index;
+    }
+    if (index > lastChanged) {
+      lastChanged = index;
+    }
+    rowChangeCounts[index / columns] = ++changeCount;
+  }
+
+  private void markAllChanged() {
+    firstChanged = 0;
+    lastChanged = values.length - 1;
+    Arrays.fill(rowChangeCounts, ++changeCount);
+  }
+
+  long getChangeCount() {
+    return changeCount;
+  }
+
+  boolean isRowChangedSince(int row, long changeCount) {
+    return rowChangeCounts[row] > changeCount;
+  }
+
+  // whether any row of the given positions, which may wrap to the start, changed
+  boolean isChangedSince(int index, int count, long changeCount) {
+    int lastRow = (index + count - 1) / columns;
+    for (int row = index / columns; row <= lastRow; row++) {
+      if (isRowChangedSince(row % rowChangeCounts.length, changeCount)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  boolean isChanged() {
+    return lastChanged >= 0;
+  }
+
+  // the positions changed since the previous call, which are then considered unchanged
+  ScreenChanges takeChanges() {
+    if (!isChanged()) {
+      return ScreenChanges.NONE;
+    }
+    BitSet changedRows = new BitSet(rowChangeCounts.length);
+    for (int row = 0; row < rowChangeCounts.length; row++) {
+      if (isRowChangedSince(row, takenChangeCount)) {
+        changedRows.set(row);
+      }
+    }
+    ScreenChanges changes = new ScreenChanges(changedRows, firstChanged, lastChanged);
+    takenChangeCount = changeCount;
+    firstChanged = Integer.MAX_VALUE;
+    lastChanged = -1;
+    return changes;
+  }
+
+  private boolean isCurrent(int index) {
+    return stamps[index] == epoch;
+  }
+
+  private void update(int index) {
+    if (!isCurrent(index)) {
+      reset(index);
+    }
+  }
+
+  private void clearAttributes(int index) {
+    if (attributes[index] != null) {
+      attributes[index].clear();
+    }
+  }
+
+  byte getByte(int index) {
+    return isCurrent(index) ? values[index] : 0;
+  }
+
+  void setChar(int index, byte value) {
+    if (getByte(index) != value) {
+      update(index);
+      values[index] = value;
+      markChanged(index);
+    }
+  }
+
+  // resets the position and sets its character, as done by the pen
+  void write(int index, byte value) {
+    if (isStartField(index) || !getAttributes(index).isEmpty() || getByte(index) != value) {
+      reset(index);
+      values[index] = value;
+    }
+  }
+
+  boolean isStartField(int index) {
+    return isCurrent(index) && startFields[index] != null;
+  }
+
+  StartFieldAttribute getStartFieldAttribute(int index) {
+    return isCurrent(index) ? startFields[index] : null;
+  }
+
+  void setStartField(int index, StartFieldAttribute startFieldAttribute) {
+    update(index);
+    if (startFieldAttribute == null && startFields[index] != null) {
+      clearAttributes(index);
+    }
+    startFields[index] = startFieldAttribute;
+    markChanged(index);
+  }
+
+  void addAttribute(int index, Attribute attribute) {
+    update(index);
+    if (attributes[index] == null) {
+      attributes[index] = new ArrayList<>(2);
+    }
+    attributes[index].add(attribute);
+    markChanged(index);
+  }
+
+  List<Attribute> getAttributes(int index) {
+    return !isCurrent(index) || attributes[index] == null ? Collections.emptyList()
+        : attributes[index];
+  }
+
+  ScreenContext getScreenContext(int index) {
+    return contexts[index];
+  }
+
+  void setScreenContext(int index, ScreenContext screenContext) {
+    if (screenContext == null) {
+      throw new IllegalArgumentException("ScreenContext cannot be null");
+    }
+    if (contexts[index] != screenContext) {
+      contexts[index] = screenContext;
+      markChanged(index);
+    }
+  }
+
+  char getChar(int index) {
+    byte value = getByte(index);
+    if (value == 0) {
+      return '\u0000';
+    }
+    if ((value & 0xC0) == 0) {
+      return ' ';
+    }
+
+    if (contexts[index].isGraphic()) {
+      return convertGraphicChar(value);
+    }
+
+    return charset.getChar(value);
+  }
+
+  String getCharString(int index) {
+    if (isStartField(index)) {
+      return " ";
+    }
+
+    if (contexts[index].isGraphic()) {
+      return String.valueOf(convertGraphicChar(getByte(index)));
+    }
+
+    char ret = charset.getChar(getByte(index));
+    return ret < ' ' ? " " : String.valueOf(ret);
+  }
+
+  private static char convertGraphicChar(byte val) {
+    switch (val) {
+      case (byte) 0x85:
+        return '│';
+      case (byte) 0xA2:
+        return '─';
+      case (byte) 0xC4:
+        return '└';
+      case (byte) 0xC5:
+        return '┌';
+      case (byte) 0xC6:
+        return '├';
+      case (byte) 0xC7:
+        return '┴';
+      case (byte) 0xD3:
+        return '┼';
+      case (byte) 0xD4:
+        return '┘';
+      case (byte) 0xD5:
+        return '┐';
+      case (byte) 0xD6:
+        return '┤';
+      case (byte) 0xD7:
+        return '┬';
+      default:
+        return ' ';
+    }
+  }
+
+  // same text as the characters of the positions, hiding the ones of fields which are not visible
+  String getText(int rows, int columns) {
+    StringBuilder text = new StringBuilder(rows * (columns + 1));
+    boolean visible = true;
+    for (int row = 0; row < rows && row * columns < values.length; row++) {
+      visible = appendText(text, row * columns, columns, visible);
+      text.append('\n');
+    }
+    return text.toString();
+  }
+
+  // appends the text of the given positions, starting with the given visibility, and returns the
+  // visibility after the last one
+  boolean appendText(StringBuilder text, int index, int count, boolean visible) {
+    int end = Math.min(index + count, values.length);
+    for (int i = index; i < end; i++) {
+      if (isStartField(i)) {
+        visible = startFields[i].isVisible();
+      }
+      text.append(visible ? getChar(i) : ' ');
+    }
+    return visible;
+  }
+
+}
@@ -4,4 +4,18 @@ public interface ScreenChangeListener {
 
   void screenChanged(ScreenWatcher screenWatcher);
 
+  /**
+   * Notifies a change of the screen, with the positions which changed since the previous
+   * notification.
+   * <p>
+   * Listeners only processing what changed can implement this method, which by default
+   * notifies {@link #screenChanged(ScreenWatcher)}.
+   *
+   * @param screenWatcher watcher of the changed screen.
+   * @param changes positions of the screen which changed.
+   */
+  default void screenChanged(ScreenWatcher screenWatcher, ScreenChanges changes) {
+    screenChanged(screenWatcher);
+  }
+
 }
@@ -0,0 +1,80 @@
+package com.bytezone.dm3270.display;
+
+import java.util.BitSet;
+
+/**
+ * Positions of the screen changed since the previous screen change notification, so listeners
+ * can process only the rows or range of positions which changed instead of the whole screen.
+ * <p>
+ * A position is changed when its character, start field, extended attributes or context
+ * (colors and highlighting) changed. Writing the character a position already has doesn't
+ * change it. Clearing the screen, as done by erase write commands, or switching to other
+ * dimensions changes all the positions.
+ * <p>
+ * Changing a start field may also change properties of the rest of its field, like its
+ * visibility, so listeners deriving them from fields should process the fields containing
+ * changed positions.
+ */
+public final class ScreenChanges {
+
+  static final ScreenChanges NONE = new ScreenChanges(new BitSet(), -1, -1);
+
+  private final BitSet rows;
+  private final int firstPosition;
+  private final int lastPosition;
+
+  ScreenChanges(BitSet rows, int firstPosition, int lastPosition) {
+    this.rows = rows;
+    this.firstPosition = firstPosition;
+    this.lastPosition = lastPosition;
+  }
+
+  public boolean isEmpty() {
+    return lastPosition < 0;
+  }
+
+  /**
+   * Gets the first changed position.
+   *
+   * @return position of the first changed position, or -1 if none changed.
+   */
+  public int getFirstPosition() {
+    return firstPosition;
+  }
+
+  /**
+   * Gets the last changed position.
+   *
+   * @return position of the last changed position, or -1 if none changed.
+   */
+  public int getLastPosition() {
+    return lastPosition;
+  }
+
+  public boolean isRowChanged(int row) {
+    return rows.get(row);
+  }
+
+  /**
+   * Gets the first changed row starting from the given one, which allows iterating the changed
+   * rows with {@code for (int row = changes.nextChangedRow(0); row >= 0;
+   * row = changes.nextChangedRow(row + 1))}.
+   *
+   * @param fromRow row to start looking from.
+   * @return the first changed row which is not before the given one, or -1 if there is none.
+   */
+  public int nextChangedRow(int fromRow) {
+    return rows.nextSetBit(fromRow);
+  }
+
+  public int getChangedRowCount() {
+    return rows.cardinality();
+  }
+
+  @Override
+  public String toString() {
+    return isEmpty() ? "[No changes]"
+        : String.format("[Positions:%d-%d, rows:%s]", firstPosition, lastPosition, rows);
+  }
+
+}
@@ -2,18 +2,33 @@ package com.bytezone.dm3270.display;
 
 import com.bytezone.dm3270.attributes.ColorAttribute;
 import java.awt.Color;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ScreenContext {
 
   public static final ScreenContext DEFAULT_CONTEXT = new ScreenContext(ColorAttribute.COLORS[0],
       ColorAttribute.COLORS[8], (byte) 0, false, false);
 
+  // contexts are immutable and only take a few distinct values, so positions share the instances
+  // of this palette, shared by all screens, instead of creating a context each time one changes
+  private static final ConcurrentMap<ScreenContext, ScreenContext> PALETTE =
+      new ConcurrentHashMap<>();
+  // contexts of the palette by the hash of their properties, so they are found without creating
+  // a context to look them up. Slots may be overwritten by contexts with the same index, and are
+  // read without synchronization, which is safe as contexts only have final fields.
+  private static final ScreenContext[] LOOKUP = new ScreenContext[256];
+
   public final Color foregroundColor;
   public final Color backgroundColor;
   public final byte highlight;
   public final boolean highIntensity;
   public final boolean isGraphic;
 
+  static {
+    PALETTE.put(DEFAULT_CONTEXT, DEFAULT_CONTEXT);
+  }
+
   public ScreenContext(Color foregroundColor, Color backgroundColor, byte highlight,
       boolean highIntensity, boolean isGraphic) {
     this.foregroundColor = foregroundColor;
@@ -23,22 +38,80 @@ public class ScreenContext {
     this.isGraphic = isGraphic;
   }
 
+  public static ScreenContext of(Color foregroundColor, Color backgroundColor, byte highlight,
+      boolean highIntensity, boolean isGraphic) {
+    int index = hash(foregroundColor, backgroundColor, highlight, highIntensity, isGraphic)
+        & (LOOKUP.length - 1);
+    ScreenContext found = LOOKUP[index];
+    if (found != null && found.matches(foregroundColor, backgroundColor, highlight,
+        highIntensity, isGraphic)) {
+      return found;
+    }
+
+    ScreenContext context = new ScreenContext(foregroundColor, backgroundColor, highlight,
+        highIntensity, isGraphic);
+    ScreenContext interned = PALETTE.putIfAbsent(context, context);
+    if (interned == null) {
+      interned = context;
+    }
+    LOOKUP[index] = interned;
+    return interned;
+  }
+
+  private static int hash(Color foregroundColor, Color backgroundColor, byte highlight,
+      boolean highIntensity, boolean isGraphic) {
+    int result = foregroundColor.hashCode();
+    result = 31 * result + backgroundColor.hashCode();
+    result = 31 * result + highlight;
+    result = 31 * result + (highIntensity ? 1 : 0);
+    result = 31 * result + (isGraphic ? 1 : 0);
+    // spread the high bits, as colors only differ in them
+    return result ^ (result >>> 16);
+  }
+
+  private boolean matches(Color foregroundColor, Color backgroundColor, byte highlight,
+      boolean highIntensity, boolean isGraphic) {
+    return this.highlight == highlight && this.highIntensity == highIntensity
+        && this.isGraphic == isGraphic && this.foregroundColor.equals(foregroundColor)
+        && this.backgroundColor.equals(backgroundColor);
+  }
+
   public ScreenContext withBackgroundColor(Color color) {
-    return new ScreenContext(foregroundColor, color, highlight, highIntensity, isGraphic);
+    return color.equals(backgroundColor) ? this
+        : of(foregroundColor, color, highlight, highIntensity, isGraphic);
   }
 
   public ScreenContext withHighlight(byte highlight) {
-    return new ScreenContext(foregroundColor, backgroundColor, highlight, highIntensity,
-        isGraphic);
+    return highlight == this.highlight ? this
+        : of(foregroundColor, backgroundColor, highlight, highIntensity, isGraphic);
   }
 
   public ScreenContext withForeground(Color color) {
-    return new ScreenContext(color, backgroundColor, highlight, highIntensity, isGraphic);
+    return color.equals(foregroundColor) ? this
+        : of(color, backgroundColor, highlight, highIntensity, isGraphic);
   }
 
   public ScreenContext withGraphic(boolean isGraphic) {
-    return new ScreenContext(foregroundColor, backgroundColor, highlight, highIntensity,
-        isGraphic);
+    return isGraphic == this.isGraphic ? this
+        : of(foregroundColor, backgroundColor, highlight, highIntensity, isGraphic);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ScreenContext that = (ScreenContext) o;
+    return matches(that.foregroundColor, that.backgroundColor, that.highlight,
+        that.highIntensity, that.isGraphic);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash(foregroundColor, backgroundColor, highlight, highIntensity, isGraphic);
   }
 
   @Override
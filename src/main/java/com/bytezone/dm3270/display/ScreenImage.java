@@ -0,0 +1,104 @@
+package com.bytezone.dm3270.display;
+
+import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import java.util.List;
+
+// Contents left in the screen positions by the orders of an erase write, so they can be restored
+// into a cleared screen instead of executing the orders again. Contexts are not kept, since they
+// are set when the fields are built.
+final class ScreenImage {
+
+  private static final int OBJECT_BYTES = 16;
+  private static final int REFERENCE_BYTES = 8;
+
+  private final byte[] values;
+  private final int[] startFieldPositions;
+  private final byte[] startFieldValues;
+  private final boolean[] startFieldsExtended;
+  private final int[] attributePositions;
+  private final Attribute[][] attributes;
+  private final int penPosition;
+  private final int insertedCursorPosition;
+
+  ScreenImage(ScreenBuffer buffer, int penPosition, int insertedCursorPosition) {
+    this.penPosition = penPosition;
+    this.insertedCursorPosition = insertedCursorPosition;
+    values = new byte[buffer.size()];
+
+    int startFieldCount = 0;
+    int attributedCount = 0;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = buffer.getByte(i);
+      if (buffer.isStartField(i)) {
+        startFieldCount++;
+      }
+      if (!buffer.getAttributes(i).isEmpty()) {
+        attributedCount++;
+      }
+    }
+
+    startFieldPositions = new int[startFieldCount];
+    startFieldValues = new byte[startFieldCount];
+    startFieldsExtended = new boolean[startFieldCount];
+    // other attributes are immutable, so they are shared by all the restored screens
+    attributePositions = new int[attributedCount];
+    attributes = new Attribute[attributedCount][];
+
+    int startField = 0;
+    int attributed = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (buffer.isStartField(i)) {
+        StartFieldAttribute startFieldAttribute = buffer.getStartFieldAttribute(i);
+        startFieldPositions[startField] = i;
+        startFieldValues[startField] = startFieldAttribute.getAttributeValue();
+        startFieldsExtended[startField++] = startFieldAttribute.isExtended();
+      }
+      List<Attribute> positionAttributes = buffer.getAttributes(i);
+      if (!positionAttributes.isEmpty()) {
+        attributePositions[attributed] = i;
+        attributes[attributed++] = positionAttributes.toArray(new Attribute[0]);
+      }
+    }
+  }
+
+  int getInsertedCursorPosition() {
+    return insertedCursorPosition;
+  }
+
+  long estimateSize() {
+    long size = OBJECT_BYTES * 8 + values.length + startFieldPositions.length * 6L;
+    for (Attribute[] positionAttributes : attributes) {
+      size += 4 + OBJECT_BYTES + positionAttributes.length * REFERENCE_BYTES;
+    }
+    return size;
+  }
+
+  // screen positions must have been reset, as done when clearing the screen
+  void restore(ScreenBuffer buffer, Pen pen) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != 0) {
+        buffer.setChar(i, values[i]);
+      }
+    }
+
+    // a new attribute for each field, as they keep the modifications of the user
+    for (int i = 0; i < startFieldPositions.length; i++) {
+      StartFieldAttribute startFieldAttribute = new StartFieldAttribute(startFieldValues[i]);
+      if (startFieldsExtended[i]) {
+        startFieldAttribute.setExtended();
+      }
+      pen.moveTo(startFieldPositions[i]);
+      pen.startField(startFieldAttribute);
+    }
+
+    for (int i = 0; i < attributePositions.length; i++) {
+      for (Attribute attribute : attributes[i]) {
+        buffer.addAttribute(attributePositions[i], attribute);
+      }
+    }
+
+    pen.moveTo(penPosition);
+  }
+
+}
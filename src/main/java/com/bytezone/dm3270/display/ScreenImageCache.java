@@ -0,0 +1,173 @@
+package com.bytezone.dm3270.display;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the screens drawn by erase write commands, which allows skipping the parsing and
+ * execution of the orders of a command when the same screen was previously received.
+ * <p>
+ * Screens are identified by the bytes of the orders of the command and the dimensions of the
+ * screen, and the least recently used ones are discarded when the estimated memory used by the
+ * cache exceeds its limit. Screens are only kept the second time they are drawn, so screens
+ * which are never repeated don't take memory nor time to be copied. A cache may be shared by all
+ * the {@link com.bytezone.dm3270.TerminalClient} instances connecting to the same hosts, and keeps
+ * count of hits and misses to allow verifying its effectiveness.
+ */
+public class ScreenImageCache {
+
+  public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final int MAX_SEEN_HASHES = 4096;
+
+  private final long maxBytes;
+  private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // hashes of the screens drawn once and not cached yet, only the most recent ones are kept
+  private final Set<Long> seenHashes = Collections.newSetFromMap(
+      new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+          return size() > MAX_SEEN_HASHES;
+        }
+      });
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private long usedBytes;
+
+  /**
+   * Creates a cache with default memory limit.
+   */
+  public ScreenImageCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Creates a cache with given memory limit.
+   *
+   * @param maxBytes maximum estimated number of bytes used by the cached screens, including the
+   * orders identifying them.
+   */
+  public ScreenImageCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the ratio of erase write commands whose screen was found in the cache.
+   *
+   * @return ratio between 0 and 1, or 0 if no screen was looked up yet.
+   */
+  public double getHitRate() {
+    long found = hits.get();
+    long total = found + misses.get();
+    return total == 0 ? 0 : (double) found / total;
+  }
+
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized ScreenImage get(byte[] buffer, int offset, int length,
+      ScreenDimensions screenDimensions) {
+    Entry entry = entries.get(hash(buffer, offset, length, screenDimensions));
+    if (entry == null || !entry.matches(buffer, offset, length, screenDimensions)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.image;
+  }
+
+  // returns true when the screen was already drawn, registering it as seen otherwise
+  synchronized boolean markSeen(byte[] buffer, int offset, int length,
+      ScreenDimensions screenDimensions) {
+    long hash = hash(buffer, offset, length, screenDimensions);
+    if (seenHashes.remove(hash)) {
+      return true;
+    }
+    seenHashes.add(hash);
+    return false;
+  }
+
+  synchronized void put(byte[] buffer, int offset, int length, ScreenDimensions screenDimensions,
+      ScreenImage image) {
+    Entry entry = new Entry(buffer, offset, length, screenDimensions, image);
+    if (entry.size > maxBytes) {
+      return;
+    }
+    Entry previous = entries.put(hash(buffer, offset, length, screenDimensions), entry);
+    if (previous != null) {
+      usedBytes -= previous.size;
+    }
+    usedBytes += entry.size;
+
+    Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+    while (usedBytes > maxBytes) {
+      usedBytes -= leastRecentlyUsed.next().size;
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  // FNV-1a, as the orders are compared when found anyway
+  private static long hash(byte[] buffer, int offset, int length,
+      ScreenDimensions screenDimensions) {
+    long hash = (FNV_OFFSET_BASIS ^ screenDimensions.rows) * FNV_PRIME;
+    hash = (hash ^ screenDimensions.columns) * FNV_PRIME;
+    for (int ptr = offset, max = offset + length; ptr < max; ptr++) {
+      hash = (hash ^ (buffer[ptr] & 0xFF)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private static final class Entry {
+
+    private final byte[] orders;
+    private final int rows;
+    private final int columns;
+    private final ScreenImage image;
+    private final long size;
+
+    private Entry(byte[] buffer, int offset, int length, ScreenDimensions screenDimensions,
+        ScreenImage image) {
+      orders = new byte[length];
+      System.arraycopy(buffer, offset, orders, 0, length);
+      rows = screenDimensions.rows;
+      columns = screenDimensions.columns;
+      this.image = image;
+      size = length + image.estimateSize();
+    }
+
+    private boolean matches(byte[] buffer, int offset, int length,
+        ScreenDimensions screenDimensions) {
+      if (length != orders.length || rows != screenDimensions.rows
+          || columns != screenDimensions.columns) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (orders[i] != buffer[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+}
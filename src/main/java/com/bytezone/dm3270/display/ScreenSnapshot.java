@@ -0,0 +1,211 @@
+package com.bytezone.dm3270.display;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable state of the screen, published after each record received from the server is
+ * processed, so any number of threads can read the screen while it is being changed by the
+ * thread processing the records, without locks and without seeing partially processed records.
+ * <p>
+ * Each snapshot shares the rows and fields which did not change with the previous one, and
+ * when nothing changed the previous snapshot is kept, so publishing a snapshot only costs what
+ * changed in the screen. The version of the snapshot increases each time a different one is
+ * published.
+ * <p>
+ * Changes made by the client to the fields, or by sending keys, are included in the snapshot
+ * published after the next record.
+ */
+public final class ScreenSnapshot {
+
+  private final long version;
+  private final long changeCount;
+  private final ScreenDimensions screenDimensions;
+  private final Row[] rows;
+  private final List<FieldSnapshot> fields;
+  private final int cursorLocation;
+  private final boolean cursorVisible;
+  private final boolean keyboardLocked;
+  // joined on first use, by any of the reading threads, as the String is immutable
+  private String text;
+
+  // text of a row, which depends on the visibility of the field its first position belongs to
+  private static final class Row {
+
+    private final String text;
+    private final boolean visibleAtStart;
+    private final boolean visibleAtEnd;
+
+    private Row(String text, boolean visibleAtStart, boolean visibleAtEnd) {
+      this.text = text;
+      this.visibleAtStart = visibleAtStart;
+      this.visibleAtEnd = visibleAtEnd;
+    }
+
+  }
+
+  private ScreenSnapshot(long version, long changeCount, ScreenDimensions screenDimensions,
+      Row[] rows, List<FieldSnapshot> fields, Cursor cursor, boolean keyboardLocked) {
+    this.version = version;
+    this.changeCount = changeCount;
+    this.screenDimensions = screenDimensions;
+    this.rows = rows;
+    this.fields = fields;
+    this.cursorLocation = cursor.getLocation();
+    this.cursorVisible = cursor.isVisible();
+    this.keyboardLocked = keyboardLocked;
+  }
+
+  // the snapshot of the current state of the screen, which is the previous one when unchanged
+  static ScreenSnapshot of(ScreenSnapshot previous, Screen screen, ScreenBuffer buffer) {
+    ScreenDimensions screenDimensions = screen.getScreenDimensions();
+    Cursor cursor = screen.getScreenCursor();
+    List<Field> screenFields = screen.getFieldManager().getFields();
+    boolean sameDimensions = previous != null && previous.screenDimensions == screenDimensions;
+    long changeCount = buffer.getChangeCount();
+
+    if (sameDimensions && previous.changeCount == changeCount
+        && previous.cursorLocation == cursor.getLocation()
+        && previous.cursorVisible == cursor.isVisible()
+        && previous.keyboardLocked == screen.isKeyboardLocked()
+        && previous.hasFieldsOf(screenFields)) {
+      return previous;
+    }
+
+    return new ScreenSnapshot(previous == null ? 0 : previous.version + 1, changeCount,
+        screenDimensions, copyRows(sameDimensions ? previous : null, buffer, screenDimensions),
+        copyFields(previous, screen, buffer, screenFields), cursor, screen.isKeyboardLocked());
+  }
+
+  // fields are only rebuilt when positions change, so with the same positions only the
+  // properties kept by their start fields may have changed
+  private boolean hasFieldsOf(List<Field> screenFields) {
+    if (fields.size() != screenFields.size()) {
+      return false;
+    }
+    for (int i = 0; i < fields.size(); i++) {
+      if (!fields.get(i).hasPropertiesOf(screenFields.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Row[] copyRows(ScreenSnapshot previous, ScreenBuffer buffer,
+      ScreenDimensions screenDimensions) {
+    Row[] rows = new Row[screenDimensions.rows];
+    int columns = screenDimensions.columns;
+    boolean visible = true;
+    for (int i = 0; i < rows.length; i++) {
+      Row row = previous == null ? null : previous.rows[i];
+      if (row == null || row.visibleAtStart != visible
+          || buffer.isRowChangedSince(i, previous.changeCount)) {
+        StringBuilder text = new StringBuilder(columns);
+        boolean visibleAtEnd = buffer.appendText(text, i * columns, columns, visible);
+        row = new Row(text.toString(), visible, visibleAtEnd);
+      }
+      rows[i] = row;
+      visible = row.visibleAtEnd;
+    }
+    return rows;
+  }
+
+  // fields are in the order of their positions, so the previous copy of a field is looked up
+  // advancing through the previous fields
+  private static List<FieldSnapshot> copyFields(ScreenSnapshot previous, Screen screen,
+      ScreenBuffer buffer, List<Field> screenFields) {
+    List<FieldSnapshot> fields = new ArrayList<>(screenFields.size());
+    int next = 0;
+    for (Field field : screenFields) {
+      FieldSnapshot fieldSnapshot = null;
+      if (previous != null) {
+        while (next < previous.fields.size()
+            && previous.fields.get(next).getFirstLocation() < field.getFirstLocation()) {
+          next++;
+        }
+        if (next < previous.fields.size()) {
+          FieldSnapshot previousField = previous.fields.get(next);
+          int startPosition = screen.validate(field.getFirstLocation() - 1);
+          if (previousField.hasPropertiesOf(field) && !buffer.isChangedSince(startPosition,
+              field.getDisplayLength() + 1, previous.changeCount)) {
+            fieldSnapshot = previousField;
+          }
+        }
+      }
+      fields.add(fieldSnapshot == null ? new FieldSnapshot(field) : fieldSnapshot);
+    }
+    return Collections.unmodifiableList(fields);
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public ScreenDimensions getScreenDimensions() {
+    return screenDimensions;
+  }
+
+  /**
+   * Gets the screen text.
+   *
+   * @return The screen text with newlines separating each row, as {@link
+   * com.bytezone.dm3270.TerminalClient#getScreenText()}.
+   */
+  public String getText() {
+    String joined = text;
+    if (joined == null) {
+      StringBuilder builder = new StringBuilder(rows.length * (screenDimensions.columns + 1));
+      for (Row row : rows) {
+        builder.append(row.text).append('\n');
+      }
+      joined = builder.toString();
+      text = joined;
+    }
+    return joined;
+  }
+
+  /**
+   * Gets the text of a row of the screen.
+   *
+   * @param row number of the row, starting from 0.
+   * @return The text of the row, without newline.
+   */
+  public String getRowText(int row) {
+    return rows[row].text;
+  }
+
+  public List<FieldSnapshot> getFields() {
+    return fields;
+  }
+
+  public int getCursorLocation() {
+    return cursorLocation;
+  }
+
+  /**
+   * Get the position of the cursor in the screen.
+   *
+   * @return The position of the cursor in the screen (x contains the column and y the row). If the
+   * cursor is not visible then empty value is returned.
+   */
+  public Optional<Point> getCursorPosition() {
+    int columns = screenDimensions.columns;
+    return cursorVisible
+        ? Optional.of(new Point(cursorLocation % columns + 1, cursorLocation / columns + 1))
+        : Optional.empty();
+  }
+
+  public boolean isKeyboardLocked() {
+    return keyboardLocked;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[Version:%d, cursor:%d, locked:%s, fields:%d]", version,
+        cursorLocation, keyboardLocked, fields.size());
+  }
+
+}
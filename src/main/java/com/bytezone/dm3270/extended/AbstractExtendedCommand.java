@@ -1,6 +1,7 @@
 package com.bytezone.dm3270.extended;
 
 import com.bytezone.dm3270.buffers.AbstractReplyBuffer;
+import com.bytezone.dm3270.buffers.TelnetEncoder;
 import com.bytezone.dm3270.display.Screen;
 
 public abstract class AbstractExtendedCommand extends AbstractReplyBuffer {
@@ -41,6 +42,13 @@ public abstract class AbstractExtendedCommand extends AbstractReplyBuffer {
     return buffer;
   }
 
+  @Override
+  public void encodeTelnetData(TelnetEncoder encoder) {
+    encoder.writeEscaped(commandHeader.getData(), 0, 5);
+    encoder.writeEscaped(data, 0, data.length);
+    encoder.endRecord();
+  }
+
   public abstract String getName();
 
   @Override
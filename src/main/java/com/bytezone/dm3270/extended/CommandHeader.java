@@ -3,6 +3,7 @@ package com.bytezone.dm3270.extended;
 import com.bytezone.dm3270.Charset;
 import com.bytezone.dm3270.buffers.AbstractReplyBuffer;
 import com.bytezone.dm3270.buffers.Buffer;
+import com.bytezone.dm3270.buffers.TelnetEncoder;
 import com.bytezone.dm3270.display.Screen;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -142,6 +143,11 @@ public class CommandHeader extends AbstractReplyBuffer {
     return returnBuffer;
   }
 
+  @Override
+  public void encodeTelnetData(TelnetEncoder encoder) {
+    encoder.writeEscaped(data, 0, data.length);
+  }
+
   @Override
   public String toString() {
     String requestText = requestType == null ? "" : requestType.toString();
@@ -3,6 +3,7 @@ package com.bytezone.dm3270.extended;
 import com.bytezone.dm3270.Charset;
 import com.bytezone.dm3270.buffers.Buffer;
 import com.bytezone.dm3270.buffers.MultiBuffer;
+import com.bytezone.dm3270.buffers.TelnetEncoder;
 import com.bytezone.dm3270.commands.Command;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.streams.TelnetState;
@@ -96,6 +97,12 @@ public class TN3270ExtendedCommand extends AbstractExtendedCommand {
     return returnBuffer;
   }
 
+  @Override
+  public void encodeTelnetData(TelnetEncoder encoder) {
+    commandHeader.encodeTelnetData(encoder);
+    command.encodeTelnetData(encoder);
+  }
+
   @Override
   public String getName() {
     return command.getName();
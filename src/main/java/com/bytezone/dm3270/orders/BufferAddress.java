@@ -30,16 +30,7 @@ public class BufferAddress {
   public BufferAddress(byte b1, byte b2) {
     this.b1 = b1;
     this.b2 = b2;
-    int flag = b1 & 0xC0;       // top two bits
-
-    // using 14-bit method
-    if (flag == 0) {
-      location = (b1 & 0x3F) << 8;
-      location |= (b2 & 0xFF);
-    } else {
-      location = (b1 & 0x3F) << 6;
-      location |= (b2 & 0x3F);
-    }
+    location = decodeLocation(b1, b2);
   }
 
   public BufferAddress(int location) {
@@ -48,6 +39,17 @@ public class BufferAddress {
     b2 = ADDRESS[location & 0x3F];
   }
 
+  public static int decodeLocation(byte b1, byte b2) {
+    int flag = b1 & 0xC0;       // top two bits
+
+    // using 14-bit method
+    if (flag == 0) {
+      return (b1 & 0x3F) << 8 | (b2 & 0xFF);
+    } else {
+      return (b1 & 0x3F) << 6 | (b2 & 0x3F);
+    }
+  }
+
   public static void setScreenWidth(int width) {
     columns = width;
   }
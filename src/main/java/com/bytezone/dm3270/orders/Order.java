@@ -35,9 +35,22 @@ public abstract class Order {
           FCO_FORM_FEED, FCO_CARRIAGE_RETURN, FCO_NEWLINE, FCO_END_OF_MEDIUM,
           FCO_EIGHT_ONES};
 
+  // indexed by unsigned byte value, so text is split at orders with one lookup per byte
+  private static final boolean[] ORDER_CODES = new boolean[256];
+
+  static {
+    for (byte value : orderValues) {
+      ORDER_CODES[value & 0xFF] = true;
+    }
+  }
+
   protected byte[] buffer;
   protected int duplicates;
 
+  public static boolean isOrder(byte value) {
+    return ORDER_CODES[value & 0xFF];
+  }
+
   public static Order getOrder(byte[] buffer, int ptr, int max, Charset charset) {
     switch (buffer[ptr]) {
       case START_FIELD:
@@ -86,6 +99,11 @@ public abstract class Order {
     }
   }
 
+  // orders which are views over the buffer they were parsed from copy their bytes, so the buffer
+  // may be reused afterwards
+  public void detach() {
+  }
+
   public void incrementDuplicates() {
     duplicates++;
   }
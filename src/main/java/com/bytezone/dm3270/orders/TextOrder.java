@@ -4,31 +4,43 @@ import com.bytezone.dm3270.Charset;
 import com.bytezone.dm3270.display.DisplayScreen;
 import com.bytezone.dm3270.display.Pen;
 
+// The text is a view over the buffer it was parsed from, which must not change while the order is
+// in use. The bytes are only copied when the buffer is requested or the order is detached.
 public class TextOrder extends Order {
 
   private final Charset charset;
+  private byte[] source;
+  private int offset;
+  private final int length;
 
   public TextOrder(byte[] buffer, int ptr, int max, Charset charset) {
     this.charset = charset;
-    int dataLength = getDataLength(buffer, ptr, max);
-    this.buffer = new byte[dataLength];
-    System.arraycopy(buffer, ptr, this.buffer, 0, dataLength);
+    source = buffer;
+    offset = ptr;
+    length = getDataLength(buffer, ptr, max);
   }
 
   private int getDataLength(byte[] buffer, int offset, int max) {
     int ptr = offset + 1;
-    int length = 1;
-    while (ptr < max) {
-      byte value = buffer[ptr++];
-      for (byte orderValue : orderValues) {
-        if (value == orderValue) {
-          return length;
-        }
-      }
-      length++;
+    while (ptr < max && !isOrder(buffer[ptr])) {
+      ptr++;
     }
+    return ptr - offset;
+  }
 
-    return length;
+  @Override
+  public void detach() {
+    if (buffer == null) {
+      buffer = new byte[length];
+      System.arraycopy(source, offset, buffer, 0, length);
+      source = buffer;
+      offset = 0;
+    }
+  }
+
+  @Override
+  public byte getType() {
+    return source[offset];
   }
 
   @Override
@@ -36,17 +48,29 @@ public class TextOrder extends Order {
     return true;
   }
 
+  @Override
+  public int size() {
+    return length;
+  }
+
+  @Override
+  public byte[] getBuffer() {
+    detach();
+    return buffer;
+  }
+
   @Override
   public void process(DisplayScreen screen) {
     Pen pen = screen.getPen();
-    for (byte b : buffer) {
-      pen.write(b);
+    int max = offset + length;
+    for (int ptr = offset; ptr < max; ptr++) {
+      pen.write(source[ptr]);
     }
   }
 
   @Override
   public String toString() {
-    return buffer.length == 0 ? "" : "Text: [" + charset.getString(buffer) + "]";
+    return length == 0 ? "" : "Text: [" + charset.getString(source, offset, length) + "]";
   }
 
 }
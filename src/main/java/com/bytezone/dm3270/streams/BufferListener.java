@@ -1,5 +1,6 @@
 package com.bytezone.dm3270.streams;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 
 public interface BufferListener {
@@ -7,6 +8,14 @@ public interface BufferListener {
   void listen(TelnetSocket.Source targetRole, byte[] message, LocalDateTime dateTime,
               boolean genuine);
 
+  // the buffer is only valid during the call, so implementations must not keep a reference to it
+  default void listen(TelnetSocket.Source targetRole, ByteBuffer message, LocalDateTime dateTime,
+      boolean genuine) {
+    byte[] buffer = new byte[message.remaining()];
+    message.get(buffer);
+    listen(targetRole, buffer, dateTime, genuine);
+  }
+
   void close();
 
 }
@@ -0,0 +1,175 @@
+package com.bytezone.dm3270.streams;
+
+import com.bytezone.dm3270.telnet.RecordBufferPool;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded queue of the segments received from a terminal server, which are decoded in order by a
+ * single consumer running in a shared executor, so reading from the connection never waits for
+ * screen processing and listeners.
+ */
+public class DecodingQueue {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DecodingQueue.class);
+
+  // shared by all the sessions, which only take a thread while draining their queue, so the
+  // number of threads doesn't grow with the number of sessions receiving at once
+  private static final ExecutorService DEFAULT_EXECUTOR = buildDefaultExecutor();
+
+  private final BlockingQueue<ByteBuffer> segments;
+  private final RecordBufferPool bufferPool = RecordBufferPool.getDefault();
+  private final int capacity;
+  private final BackpressurePolicy backpressurePolicy;
+  private final Executor executor;
+  private final Transport transport;
+  // the receiving thread of shared transports can't block, so reading is paused instead
+  private final boolean pausesReading;
+  private final Consumer<ByteBuffer> decoder;
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final AtomicBoolean readingPaused = new AtomicBoolean();
+  private final AtomicInteger maxDepth = new AtomicInteger();
+  private final AtomicReference<Runnable> drainedAction = new AtomicReference<>();
+
+  /**
+   * What to do when a segment is received and the queue is full.
+   */
+  public enum BackpressurePolicy {
+    /**
+     * Stop reading from the connection until the queue has room, which lets TCP flow control
+     * slow down the server. Connections sharing their receiving thread, like the ones of a
+     * {@link NioEventLoopGroup}, stop reading without blocking it, so other connections are not
+     * affected.
+     */
+    BLOCK,
+    /**
+     * Close the connection notifying an exception to the connection listener.
+     */
+    FAIL
+  }
+
+  DecodingQueue(int capacity, BackpressurePolicy backpressurePolicy, Executor executor,
+      Transport transport, Consumer<ByteBuffer> decoder) {
+    this.capacity = capacity;
+    this.backpressurePolicy = backpressurePolicy;
+    this.executor = executor != null ? executor : DEFAULT_EXECUTOR;
+    this.transport = transport;
+    this.pausesReading =
+        backpressurePolicy == BackpressurePolicy.BLOCK && transport.sharesReceivingThread();
+    this.segments = new ArrayBlockingQueue<>(capacity);
+    this.decoder = decoder;
+  }
+
+  private static ExecutorService buildDefaultExecutor() {
+    AtomicInteger sequence = new AtomicInteger();
+    return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+      Thread thread = new Thread(r, "dm3270-decoder-" + sequence.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // returns false when the segment is rejected because the queue is full
+  boolean offer(ByteBuffer buffer) throws InterruptedException {
+    // the buffer is reused by the transport, so it is copied to a pooled one, which is released
+    // once decoded
+    int length = buffer.remaining();
+    ByteBuffer segment = ByteBuffer.wrap(bufferPool.acquire(length), 0, length);
+    segment.put(buffer);
+    segment.flip();
+    if (pausesReading) {
+      // the receiving thread stops delivering data as soon as reading is paused, so the queue
+      // never gets more segments than its capacity. Paused before adding the segment, so the
+      // drain resuming reading always comes after.
+      if (segments.size() + 1 >= capacity && readingPaused.compareAndSet(false, true)) {
+        transport.setReadingPaused(true);
+      }
+      segments.add(segment);
+    } else if (backpressurePolicy == BackpressurePolicy.BLOCK) {
+      segments.put(segment);
+    } else if (!segments.offer(segment)) {
+      bufferPool.release(segment.array());
+      return false;
+    }
+    maxDepth.accumulateAndGet(segments.size(), Math::max);
+
+    scheduleDrain();
+    return true;
+  }
+
+  // runs the action in the decoding thread once the segments already queued are decoded
+  void afterDrained(Runnable action) {
+    drainedAction.set(action);
+    scheduleDrain();
+  }
+
+  private void scheduleDrain() {
+    if (draining.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    try {
+      ByteBuffer segment = segments.poll();
+      while (segment != null) {
+        try {
+          decoder.accept(segment);
+        } finally {
+          bufferPool.release(segment.array());
+        }
+        resumeReadingWhenDrained();
+        segment = segments.poll();
+      }
+      resumeReadingWhenDrained();
+      Runnable action = drainedAction.getAndSet(null);
+      if (action != null) {
+        action.run();
+      }
+    } catch (RuntimeException e) {
+      LOG.error("Problem decoding received data", e);
+    } finally {
+      draining.set(false);
+    }
+
+    // a segment (or action) may have been added after the last poll, but before releasing the flag
+    if (!segments.isEmpty() || drainedAction.get() != null) {
+      scheduleDrain();
+    }
+  }
+
+  // resumed at half the capacity, so reading is not paused again by the next segment
+  private void resumeReadingWhenDrained() {
+    if (readingPaused.get() && segments.size() <= capacity / 2
+        && readingPaused.compareAndSet(true, false)) {
+      transport.setReadingPaused(false);
+    }
+  }
+
+  public int getDepth() {
+    return segments.size();
+  }
+
+  public int getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  void clear() {
+    ByteBuffer segment = segments.poll();
+    while (segment != null) {
+      bufferPool.release(segment.array());
+      segment = segments.poll();
+    }
+  }
+
+}
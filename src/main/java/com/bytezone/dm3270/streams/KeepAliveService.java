@@ -0,0 +1,168 @@
+package com.bytezone.dm3270.streams;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Keeps alive the connections of all the sessions of the process from a single thread, sending a
+// NOOP to any session which has not communicated with the server in its idle limit. Sessions are
+// kept in a hashed timing wheel, so each tick only visits the sessions expiring in it.
+class KeepAliveService implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(KeepAliveService.class);
+
+  private static final KeepAliveService DEFAULT = new KeepAliveService(1000, 512);
+
+  private final long tickMillis;
+  private final List<List<Registration>> wheel;
+  private long lastTick;
+  private int registrations;
+  private Thread thread;
+
+  KeepAliveService(long tickMillis, int wheelSize) {
+    this.tickMillis = tickMillis;
+    wheel = new ArrayList<>(wheelSize);
+    for (int i = 0; i < wheelSize; i++) {
+      wheel.add(new ArrayList<>());
+    }
+  }
+
+  static KeepAliveService getDefault() {
+    return DEFAULT;
+  }
+
+  synchronized Registration register(TelnetState telnetState) {
+    if (thread == null) {
+      lastTick = currentTick();
+      thread = new Thread(this, "dm3270-keepalive");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    Registration registration = new Registration(telnetState);
+    schedule(registration, telnetState.getLastAccess() + telnetState.getKeepAliveIdleMillis());
+    registrations++;
+    notifyAll();
+    return registration;
+  }
+
+  private long currentTick() {
+    return System.currentTimeMillis() / tickMillis;
+  }
+
+  private void schedule(Registration registration, long deadlineMillis) {
+    // round up so the session is never visited before its deadline
+    registration.deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis,
+        lastTick + 1);
+    bucket(registration.deadlineTick).add(registration);
+  }
+
+  private List<Registration> bucket(long tick) {
+    return wheel.get((int) Math.floorMod(tick, (long) wheel.size()));
+  }
+
+  private synchronized void cancel(Registration registration) {
+    if (registration.cancelled) {
+      return;
+    }
+    registration.cancelled = true;
+    bucket(registration.deadlineTick).remove(registration);
+    registrations--;
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        List<Registration> expired = awaitExpired();
+        long now = System.currentTimeMillis();
+        // all the sessions expired in the tick are written in one go, out of the lock
+        for (Registration registration : expired) {
+          keepAlive(registration, now);
+        }
+        reschedule(expired);
+      } catch (InterruptedException e) {
+        LOG.debug("Keep alive service was interrupted.");
+        return;
+      }
+    }
+  }
+
+  private synchronized List<Registration> awaitExpired() throws InterruptedException {
+    while (registrations == 0) {
+      wait();
+      lastTick = currentTick();
+    }
+
+    long nextTickMillis = (lastTick + 1) * tickMillis;
+    long sleep = nextTickMillis - System.currentTimeMillis();
+    while (sleep > 0) {
+      wait(sleep);
+      sleep = nextTickMillis - System.currentTimeMillis();
+    }
+
+    // catch up with any tick missed while the previous batch was being sent
+    List<Registration> expired = new ArrayList<>();
+    long currentTick = currentTick();
+    long ticks = Math.min(currentTick - lastTick, wheel.size());
+    for (long i = 1; i <= ticks; i++) {
+      Iterator<Registration> it = bucket(lastTick + i).iterator();
+      while (it.hasNext()) {
+        Registration registration = it.next();
+        if (registration.deadlineTick <= currentTick) {
+          it.remove();
+          expired.add(registration);
+        }
+      }
+    }
+    lastTick = currentTick;
+    return expired;
+  }
+
+  private void keepAlive(Registration registration, long now) {
+    TelnetState telnetState = registration.telnetState;
+    long idleMillis = telnetState.getKeepAliveIdleMillis();
+    long lastAccess = telnetState.getLastAccess();
+    if (now - lastAccess < idleMillis) {
+      registration.deadlineMillis = lastAccess + idleMillis;
+      return;
+    }
+
+    if (!registration.cancelled) {
+      try {
+        telnetState.writeKeepAlive();
+      } catch (RuntimeException e) {
+        LOG.warn("Problem sending keep alive to {}", telnetState, e);
+      }
+    }
+    registration.deadlineMillis = now + idleMillis;
+  }
+
+  private synchronized void reschedule(List<Registration> expired) {
+    for (Registration registration : expired) {
+      if (!registration.cancelled) {
+        schedule(registration, registration.deadlineMillis);
+      }
+    }
+  }
+
+  final class Registration {
+
+    private final TelnetState telnetState;
+    private long deadlineTick;
+    private long deadlineMillis;
+    private volatile boolean cancelled;
+
+    private Registration(TelnetState telnetState) {
+      this.telnetState = telnetState;
+    }
+
+    void cancel() {
+      KeepAliveService.this.cancel(this);
+    }
+
+  }
+
+}
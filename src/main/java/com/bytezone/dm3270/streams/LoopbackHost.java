@@ -0,0 +1,17 @@
+package com.bytezone.dm3270.streams;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Terminal server simulated in the same JVM, which a {@link LoopbackTransport} connects to.
+ * <p>
+ * All the callbacks of a connection are invoked from the delivery thread of its transport.
+ */
+public interface LoopbackHost {
+
+  void onConnection(LoopbackTransport.HostConnection connection);
+
+  // the buffer is only valid during the call
+  void onData(LoopbackTransport.HostConnection connection, ByteBuffer data);
+
+}
@@ -0,0 +1,208 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transport connected to a {@link LoopbackHost} in the same JVM, which allows benchmarking and
+ * testing the client without network or sockets involved.
+ * <p>
+ * Data flowing in each direction may be delayed with a fixed latency and limited to a bandwidth,
+ * to simulate the network conditions of a real terminal server. All deliveries, to the host and to
+ * the client, are done in order from a single thread owned by the transport.
+ */
+public class LoopbackTransport implements Transport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoopbackTransport.class);
+
+  private final LoopbackHost host;
+  private long latencyMillis;
+  private long bytesPerSecond;
+
+  private final DelayQueue<Delivery> deliveries = new DelayQueue<>();
+  private final HostConnection hostConnection = new HostConnection();
+  private final Link toHost = new Link();
+  private final Link toClient = new Link();
+  private TransportListener listener;
+  private Thread thread;
+  private long sequence;
+  private volatile boolean closed;
+
+  public LoopbackTransport(LoopbackHost host) {
+    this.host = host;
+  }
+
+  /**
+   * Sets the time each piece of data takes to reach the other side.
+   *
+   * @param latencyMillis millis to delay each delivery, in both directions. By default 0.
+   */
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Sets the maximum rate of data transfer in each direction.
+   *
+   * @param bytesPerSecond maximum bytes delivered per second. If not specified (or 0) data is
+   * delivered without bandwidth limit.
+   */
+  public void setBytesPerSecond(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  @Override
+  public synchronized void connect(String host, int port, int connectionTimeoutMillis,
+      TransportListener listener) {
+    this.listener = listener;
+    thread = new Thread(this::deliver, "dm3270-loopback-" + host + ":" + port);
+    thread.setDaemon(true);
+    thread.start();
+    schedule(toClient, 0, () -> {
+      listener.onConnection();
+      this.host.onConnection(hostConnection);
+    });
+  }
+
+  private void deliver() {
+    try {
+      while (!closed) {
+        deliveries.take().action.run();
+      }
+    } catch (InterruptedException e) {
+      // closed while waiting for the next delivery
+    } catch (RuntimeException e) {
+      LOG.error("Problem delivering loopback data", e);
+      listener.onException(new IOException(e));
+    }
+  }
+
+  // deliveries are always queued, so a side never receives data while it is still sending
+  private synchronized void schedule(Link link, int size, Runnable action) {
+    long now = System.nanoTime();
+    long sentNanos = Math.max(now, link.freeAtNanos);
+    if (bytesPerSecond > 0) {
+      sentNanos += TimeUnit.SECONDS.toNanos(size) / bytesPerSecond;
+    }
+    link.freeAtNanos = sentNanos;
+    deliveries.add(new Delivery(sentNanos + TimeUnit.MILLISECONDS.toNanos(latencyMillis),
+        sequence++, action));
+  }
+
+  @Override
+  public void write(ByteBuffer... buffers) throws IOException {
+    if (closed) {
+      throw new IOException("Connection is closed");
+    }
+    ByteBuffer data = copy(buffers);
+    schedule(toHost, data.remaining(), () -> host.onData(hostConnection, data));
+  }
+
+  private static ByteBuffer copy(ByteBuffer[] buffers) {
+    int size = 0;
+    for (ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    ByteBuffer data = ByteBuffer.allocate(size);
+    for (ByteBuffer buffer : buffers) {
+      data.put(buffer);
+    }
+    data.flip();
+    return data;
+  }
+
+  @Override
+  public boolean blocksOnWrite() {
+    return false;
+  }
+
+  @Override
+  public boolean releasesBuffersOnWrite() {
+    return true;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    Thread current = thread;
+    if (current != null) {
+      current.interrupt();
+    }
+  }
+
+  @Override
+  public void awaitTermination() throws InterruptedException {
+    Thread current = thread;
+    if (current != null && current != Thread.currentThread()) {
+      current.join();
+    }
+  }
+
+  /**
+   * Side of the connection seen by the {@link LoopbackHost}.
+   */
+  public final class HostConnection {
+
+    private HostConnection() {
+    }
+
+    /**
+     * Sends data to the client.
+     *
+     * @param data bytes to send, which are copied so the array may be reused after the call.
+     */
+    public void send(byte[] data) {
+      ByteBuffer buffer = ByteBuffer.wrap(data.clone());
+      schedule(toClient, data.length, () -> listener.onData(buffer));
+    }
+
+    /**
+     * Closes the connection, notifying the client after any data previously sent.
+     */
+    public void close() {
+      schedule(toClient, 0, () -> {
+        closed = true;
+        listener.onConnectionClosed();
+      });
+    }
+
+  }
+
+  private static final class Link {
+
+    private long freeAtNanos;
+
+  }
+
+  private static final class Delivery implements Delayed {
+
+    private final long deliveryNanos;
+    private final long sequence;
+    private final Runnable action;
+
+    private Delivery(long deliveryNanos, long sequence, Runnable action) {
+      this.deliveryNanos = deliveryNanos;
+      this.sequence = sequence;
+      this.action = action;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(deliveryNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      Delivery other = (Delivery) o;
+      int result = Long.compare(deliveryNanos, other.deliveryNanos);
+      return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+
+  }
+
+}
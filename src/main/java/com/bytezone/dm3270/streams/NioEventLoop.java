@@ -0,0 +1,169 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Single selector thread multiplexing the I/O of many NioTransports. Channels and scheduled
+// tasks are only touched from the event loop thread, other threads hand over work with execute().
+class NioEventLoop implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NioEventLoop.class);
+
+  private final Selector selector;
+  private final Thread thread;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final PriorityQueue<ScheduledTask> scheduledTasks = new PriorityQueue<>();
+  private volatile boolean running = true;
+
+  NioEventLoop(String name) throws IOException {
+    selector = Selector.open();
+    thread = new Thread(this, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  boolean inEventLoop() {
+    return Thread.currentThread() == thread;
+  }
+
+  void execute(Runnable task) {
+    tasks.add(task);
+    if (!inEventLoop()) {
+      selector.wakeup();
+    }
+  }
+
+  // must be called from the event loop thread
+  ScheduledTask schedule(Runnable task, long delayMillis) {
+    ScheduledTask scheduledTask =
+        new ScheduledTask(task, System.currentTimeMillis() + delayMillis);
+    scheduledTasks.add(scheduledTask);
+    return scheduledTask;
+  }
+
+  // must be called from the event loop thread
+  SelectionKey register(SelectableChannel channel, int ops, NioTransport transport)
+      throws ClosedChannelException {
+    return channel.register(selector, ops, transport);
+  }
+
+  void shutdown() {
+    running = false;
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      try {
+        select();
+        processSelectedKeys();
+        runScheduledTasks();
+        runTasks();
+      } catch (IOException | RuntimeException e) {
+        LOG.error("Unexpected error in event loop", e);
+      }
+    }
+
+    closeSelector();
+  }
+
+  private void select() throws IOException {
+    if (!tasks.isEmpty()) {
+      selector.selectNow();
+      return;
+    }
+
+    ScheduledTask nextTask = scheduledTasks.peek();
+    if (nextTask == null) {
+      selector.select();
+      return;
+    }
+
+    long delay = nextTask.deadline - System.currentTimeMillis();
+    if (delay > 0) {
+      selector.select(delay);
+    } else {
+      selector.selectNow();
+    }
+  }
+
+  private void processSelectedKeys() {
+    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+    while (keys.hasNext()) {
+      SelectionKey key = keys.next();
+      keys.remove();
+
+      NioTransport transport = (NioTransport) key.attachment();
+      try {
+        transport.handleSelection(key);
+      } catch (RuntimeException e) {
+        // a failing listener must not take down the rest of the connections of this loop
+        LOG.error("Unexpected error processing {}", transport, e);
+        transport.closeChannel();
+      }
+    }
+  }
+
+  private void runScheduledTasks() {
+    long now = System.currentTimeMillis();
+    while (!scheduledTasks.isEmpty() && scheduledTasks.peek().deadline <= now) {
+      ScheduledTask scheduledTask = scheduledTasks.poll();
+      if (!scheduledTask.cancelled) {
+        scheduledTask.task.run();
+      }
+    }
+  }
+
+  private void runTasks() {
+    Runnable task = tasks.poll();
+    while (task != null) {
+      task.run();
+      task = tasks.poll();
+    }
+  }
+
+  private void closeSelector() {
+    for (SelectionKey key : selector.keys()) {
+      ((NioTransport) key.attachment()).closeChannel();
+    }
+
+    try {
+      selector.close();
+    } catch (IOException e) {
+      LOG.warn("Problem closing selector", e);
+    }
+  }
+
+  static final class ScheduledTask implements Comparable<ScheduledTask> {
+
+    private final Runnable task;
+    private final long deadline;
+    private boolean cancelled;
+
+    private ScheduledTask(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    void cancel() {
+      cancelled = true;
+    }
+
+    @Override
+    public int compareTo(ScheduledTask other) {
+      return Long.compare(deadline, other.deadline);
+    }
+
+  }
+
+}
@@ -0,0 +1,63 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of selector threads serving the I/O of any number of non-blocking connections.
+ * <p>
+ * A group is meant to be shared by all the {@link com.bytezone.dm3270.TerminalClient} instances
+ * of the JVM, and should only be closed once all of them have been disconnected.
+ */
+public class NioEventLoopGroup implements AutoCloseable {
+
+  private final NioEventLoop[] eventLoops;
+  private final AtomicInteger nextEventLoop = new AtomicInteger();
+
+  /**
+   * Creates a group with as many event loops as available processors.
+   */
+  public NioEventLoopGroup() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a group with the given number of event loops.
+   *
+   * @param threads number of event loop threads to serve connections with.
+   */
+  public NioEventLoopGroup(int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Threads must be greater than 0: " + threads);
+    }
+
+    eventLoops = new NioEventLoop[threads];
+    for (int i = 0; i < threads; i++) {
+      try {
+        eventLoops[i] = new NioEventLoop("dm3270-nio-" + i);
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  // connections are spread across event loops in round robin
+  NioEventLoop next() {
+    return eventLoops[Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length)];
+  }
+
+  /**
+   * Stops all the event loops of the group and closes any connection still registered in them.
+   */
+  @Override
+  public void close() {
+    for (NioEventLoop eventLoop : eventLoops) {
+      if (eventLoop != null) {
+        eventLoop.shutdown();
+      }
+    }
+  }
+
+}
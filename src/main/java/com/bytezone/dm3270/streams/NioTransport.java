@@ -0,0 +1,285 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking transport which serves the connection from one of the event loops of a {@link
+ * NioEventLoopGroup}, so many connections can share a few threads.
+ */
+public class NioTransport implements Transport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NioTransport.class);
+
+  private final NioEventLoop eventLoop;
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+  // only accessed from the event loop thread
+  private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<>();
+
+  private SocketChannel channel;
+  private SelectionKey key;
+  private TransportListener listener;
+  private NioEventLoop.ScheduledTask connectionTimeout;
+  private boolean channelConnected;
+  // only accessed from the event loop thread
+  private boolean readingPaused;
+  private volatile boolean closed;
+
+  public NioTransport(NioEventLoopGroup eventLoopGroup) {
+    this.eventLoop = eventLoopGroup.next();
+  }
+
+  @Override
+  public void connect(String host, int port, int connectionTimeoutMillis,
+      TransportListener listener) {
+    this.listener = listener;
+    // name resolution is blocking, so it is done in caller thread to not stall the event loop
+    InetSocketAddress address = new InetSocketAddress(host, port);
+    eventLoop.execute(() -> doConnect(address, connectionTimeoutMillis));
+  }
+
+  private void doConnect(InetSocketAddress address, int connectionTimeoutMillis) {
+    if (closed) {
+      return;
+    }
+
+    try {
+      if (address.isUnresolved()) {
+        throw new UnknownHostException(address.getHostString());
+      }
+
+      channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      if (channel.connect(address)) {
+        key = eventLoop.register(channel, SelectionKey.OP_READ, this);
+        onChannelConnected();
+      } else {
+        key = eventLoop.register(channel, SelectionKey.OP_CONNECT, this);
+        if (connectionTimeoutMillis > 0) {
+          connectionTimeout = eventLoop.schedule(
+              () -> fail(new SocketTimeoutException("connect timed out")),
+              connectionTimeoutMillis);
+        }
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  void handleSelection(SelectionKey key) {
+    try {
+      if (key.isConnectable()) {
+        finishConnect();
+      }
+      if (key.isValid() && key.isReadable()) {
+        read();
+      }
+      if (key.isValid() && key.isWritable()) {
+        flush();
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  private void finishConnect() throws IOException {
+    if (!channel.finishConnect()) {
+      return;
+    }
+
+    if (connectionTimeout != null) {
+      connectionTimeout.cancel();
+    }
+    key.interestOps(SelectionKey.OP_READ);
+    onChannelConnected();
+  }
+
+  private void onChannelConnected() throws IOException {
+    channelConnected = true;
+    flush();
+    onConnected();
+  }
+
+  // invoked in the event loop once the channel is connected, before any data is received
+  void onConnected() throws IOException {
+    listener.onConnection();
+  }
+
+  private void read() throws IOException {
+    readBuffer.clear();
+    int bytesRead = channel.read(readBuffer);
+    if (bytesRead < 0) {
+      closeChannel();
+      listener.onConnectionClosed();
+      return;
+    }
+
+    if (bytesRead > 0) {
+      readBuffer.flip();
+      onRead(readBuffer);
+    }
+  }
+
+  // invoked in the event loop with the bytes received from the channel
+  void onRead(ByteBuffer buffer) throws IOException {
+    listener.onData(buffer);
+  }
+
+  @Override
+  public void write(ByteBuffer... buffers) throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+
+    if (eventLoop.inEventLoop()) {
+      enqueueWrite(buffers);
+    } else {
+      eventLoop.execute(() -> enqueueWrite(buffers));
+    }
+  }
+
+  private void enqueueWrite(ByteBuffer[] buffers) {
+    if (closed) {
+      return;
+    }
+
+    try {
+      onWrite(buffers);
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  // invoked in the event loop with the buffers written by the listener
+  void onWrite(ByteBuffer[] buffers) throws IOException {
+    for (ByteBuffer buffer : buffers) {
+      send(buffer);
+    }
+  }
+
+  // must be called from the event loop thread
+  void send(ByteBuffer buffer) throws IOException {
+    pendingWrites.add(buffer);
+    if (channelConnected) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    if (!pendingWrites.isEmpty()) {
+      channel.write(pendingWrites.toArray(new ByteBuffer[0]));
+      while (!pendingWrites.isEmpty() && !pendingWrites.peek().hasRemaining()) {
+        pendingWrites.poll();
+      }
+      if (!pendingWrites.isEmpty()) {
+        // socket send buffer is full, so wait for the channel to be writable again
+        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        return;
+      }
+    }
+
+    if (key.isValid()) {
+      key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+  }
+
+  @Override
+  public boolean blocksOnWrite() {
+    return false;
+  }
+
+  @Override
+  public boolean sharesReceivingThread() {
+    return true;
+  }
+
+  @Override
+  public void setReadingPaused(boolean paused) {
+    if (eventLoop.inEventLoop()) {
+      updateReadInterest(paused);
+    } else {
+      eventLoop.execute(() -> updateReadInterest(paused));
+    }
+  }
+
+  private void updateReadInterest(boolean paused) {
+    readingPaused = paused;
+    if (key != null && key.isValid()) {
+      key.interestOps(paused ? key.interestOps() & ~SelectionKey.OP_READ
+          : key.interestOps() | SelectionKey.OP_READ);
+    }
+    if (!paused) {
+      try {
+        onReadingResumed();
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+  }
+
+  // must be called from the event loop thread
+  boolean isReadingPaused() {
+    return readingPaused;
+  }
+
+  // invoked in the event loop when reading is resumed, to deliver data received before pausing
+  void onReadingResumed() throws IOException {
+  }
+
+  NioEventLoop eventLoop() {
+    return eventLoop;
+  }
+
+  TransportListener listener() {
+    return listener;
+  }
+
+  // must be called from the event loop thread
+  void fail(IOException ex) {
+    boolean wasClosed = closed;
+    closeChannel();
+    if (!wasClosed) {
+      listener.onException(ex);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    eventLoop.execute(this::onClose);
+  }
+
+  // invoked in the event loop when the transport is closed by the listener
+  void onClose() {
+    closeChannel();
+  }
+
+  // must be called from the event loop thread
+  void closeChannel() {
+    closed = true;
+    channelConnected = false;
+    pendingWrites.clear();
+    if (connectionTimeout != null) {
+      connectionTimeout.cancel();
+    }
+
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("Problem closing channel", e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.bytezone.dm3270.streams;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factories of the threads which read from the connections of the sessions.
+ * <p>
+ * Virtual threads are only available when running in a Java 21 or later runtime. Since the library
+ * is compiled for Java 8 they are created through reflection, so the same jar can be used in any
+ * runtime.
+ */
+public final class SessionThreads {
+
+  private static final ThreadFactory VIRTUAL_FACTORY = buildVirtualFactory();
+
+  private SessionThreads() {
+  }
+
+  private static ThreadFactory buildVirtualFactory() {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, "dm3270-session-", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+        | InvocationTargetException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates a factory of platform threads, which is the default one.
+   *
+   * @param namePrefix prefix of the names of the created threads, which get a sequence number
+   * appended.
+   * @return the thread factory.
+   */
+  public static ThreadFactory platform(String namePrefix) {
+    AtomicLong sequence = new AtomicLong();
+    return r -> new Thread(r, namePrefix + sequence.getAndIncrement());
+  }
+
+  /**
+   * Gets the factory of virtual threads, which don't hold an OS thread while blocked reading from
+   * the connection, allowing a great number of sessions in one process.
+   *
+   * @return the thread factory.
+   * @throws UnsupportedOperationException if the runtime doesn't support virtual threads.
+   * @see #isVirtualAvailable()
+   */
+  public static ThreadFactory virtual() {
+    if (VIRTUAL_FACTORY == null) {
+      throw new UnsupportedOperationException(
+          "Virtual threads are not supported by Java " + System.getProperty("java.version"));
+    }
+    return VIRTUAL_FACTORY;
+  }
+
+  public static boolean isVirtualAvailable() {
+    return VIRTUAL_FACTORY != null;
+  }
+
+  /**
+   * Gets the factory of virtual threads when supported by the runtime, or platform threads
+   * otherwise.
+   *
+   * @return the thread factory.
+   */
+  public static ThreadFactory virtualIfAvailable() {
+    return VIRTUAL_FACTORY != null ? VIRTUAL_FACTORY : platform("dm3270-session-");
+  }
+
+}
@@ -0,0 +1,160 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadFactory;
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Blocking transport which uses a dedicated thread per connection to read from the socket.
+ * <p>
+ * The thread is created with the given {@link ThreadFactory}, which may create virtual threads
+ * (see {@link SessionThreads}) so blocked reads don't hold an OS thread.
+ */
+public class SocketTransport implements Transport {
+
+  private final SocketFactory socketFactory;
+  private final byte[] buffer = new byte[4096];
+  private final ByteBuffer readBuffer = ByteBuffer.wrap(buffer);
+
+  private volatile Socket socket;
+  private volatile OutputStream socketOut;
+  private Thread thread;
+  private volatile boolean closed;
+  private SslSessionCache sslSessionCache;
+  private ThreadFactory threadFactory = Thread::new;
+
+  public SocketTransport(SocketFactory socketFactory) {
+    this.socketFactory = socketFactory;
+  }
+
+  public void setSslSessionCache(SslSessionCache sslSessionCache) {
+    this.sslSessionCache = sslSessionCache;
+  }
+
+  public void setThreadFactory(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+  }
+
+  @Override
+  public void connect(String host, int port, int connectionTimeoutMillis,
+      TransportListener listener) {
+    thread = threadFactory.newThread(() -> run(host, port, connectionTimeoutMillis, listener));
+    thread.start();
+  }
+
+  private void run(String host, int port, int connectionTimeoutMillis,
+      TransportListener listener) {
+    try {
+      InputStream socketIn;
+      try {
+        socket = socketFactory.createSocket();
+        socket.connect(new InetSocketAddress(host, port), connectionTimeoutMillis);
+        if (sslSessionCache != null && socket instanceof SSLSocket) {
+          handshake((SSLSocket) socket);
+        }
+        socketIn = socket.getInputStream();
+        socketOut = socket.getOutputStream();
+      } catch (IOException ex) {
+        if (!closed) {
+          listener.onException(ex);
+        }
+        return;
+      }
+
+      // closed while connecting
+      if (closed) {
+        socket.close();
+        return;
+      }
+
+      listener.onConnection();
+
+      while (!closed) {
+        int bytesRead = socketIn.read(buffer);
+        if (bytesRead < 0) {
+          listener.onConnectionClosed();
+          break;
+        }
+
+        readBuffer.clear();
+        readBuffer.limit(bytesRead);
+        listener.onData(readBuffer);
+      }
+    } catch (IOException e) {
+      if (!closed) {
+        listener.onException(e);
+      }
+    }
+  }
+
+  private void handshake(SSLSocket sslSocket) throws IOException {
+    long handshakeStart = System.currentTimeMillis();
+    sslSocket.startHandshake();
+    sslSessionCache.handshakeCompleted(sslSocket.getSession(), handshakeStart);
+  }
+
+  @Override
+  public void write(ByteBuffer... buffers) throws IOException {
+    OutputStream out = socketOut;
+    if (out == null) {
+      throw new SocketException("Socket is not connected");
+    }
+
+    if (buffers.length == 1 && buffers[0].hasArray()) {
+      ByteBuffer buffer = buffers[0];
+      out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      out.flush();
+      buffer.position(buffer.limit());
+      return;
+    }
+
+    // streams can't gather, so buffers are joined to send them all in one write
+    int length = 0;
+    for (ByteBuffer buffer : buffers) {
+      length += buffer.remaining();
+    }
+    byte[] data = new byte[length];
+    int offset = 0;
+    for (ByteBuffer buffer : buffers) {
+      int remaining = buffer.remaining();
+      buffer.get(data, offset, remaining);
+      offset += remaining;
+    }
+
+    out.write(data);
+    out.flush();
+  }
+
+  @Override
+  public boolean releasesBuffersOnWrite() {
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+
+    if (thread != null) {
+      thread.interrupt();
+    }
+
+    if (socket != null) {
+      socket.close();
+    }
+  }
+
+  @Override
+  public void awaitTermination() throws InterruptedException {
+    if (thread != null && thread != Thread.currentThread()) {
+      thread.join();
+    }
+  }
+
+}
@@ -0,0 +1,250 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking transport which encrypts the connection with an {@link SSLEngine}.
+ * <p>
+ * Handshake, encryption and decryption happen in the event loop, except for the delegated tasks
+ * of the engine (like certificates validation), which run in the given executor to not stall the
+ * rest of the connections of the event loop.
+ */
+public class SslNioTransport extends NioTransport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SslNioTransport.class);
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final SSLContext sslContext;
+  private final Executor delegatedTaskExecutor;
+
+  // only accessed from the event loop thread
+  private SSLEngine engine;
+  private ByteBuffer netIn;
+  private ByteBuffer appIn;
+  private final List<ByteBuffer> pendingAppWrites = new ArrayList<>();
+  private boolean handshakeDone;
+  private long handshakeStart;
+  private boolean runningTasks;
+  private SslSessionCache sslSessionCache;
+
+  public SslNioTransport(NioEventLoopGroup eventLoopGroup, SSLContext sslContext) {
+    this(eventLoopGroup, sslContext, ForkJoinPool.commonPool());
+  }
+
+  public SslNioTransport(NioEventLoopGroup eventLoopGroup, SSLContext sslContext,
+      Executor delegatedTaskExecutor) {
+    super(eventLoopGroup);
+    this.sslContext = sslContext;
+    this.delegatedTaskExecutor = delegatedTaskExecutor;
+  }
+
+  public void setSslSessionCache(SslSessionCache sslSessionCache) {
+    this.sslSessionCache = sslSessionCache;
+  }
+
+  @Override
+  public void connect(String host, int port, int connectionTimeoutMillis,
+      TransportListener listener) {
+    // peer host and port allow the engine to resume previous sessions with the host
+    engine = sslContext.createSSLEngine(host, port);
+    engine.setUseClientMode(true);
+    netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+    appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+    super.connect(host, port, connectionTimeoutMillis, listener);
+  }
+
+  @Override
+  void onConnected() throws IOException {
+    handshakeStart = System.currentTimeMillis();
+    engine.beginHandshake();
+    process();
+  }
+
+  @Override
+  void onRead(ByteBuffer buffer) throws IOException {
+    if (netIn.remaining() < buffer.remaining()) {
+      ByteBuffer enlarged = ByteBuffer.allocate(netIn.position() + buffer.remaining());
+      netIn.flip();
+      enlarged.put(netIn);
+      netIn = enlarged;
+    }
+    netIn.put(buffer);
+
+    if (!runningTasks) {
+      process();
+    }
+  }
+
+  // advances the handshake and decrypts any received data, until more data or a task is needed
+  private void process() throws IOException {
+    while (isOpen()) {
+      HandshakeStatus status = engine.getHandshakeStatus();
+      if (status == HandshakeStatus.NEED_TASK) {
+        runDelegatedTasks();
+        return;
+      } else if (status == HandshakeStatus.NEED_WRAP) {
+        wrap(EMPTY);
+      } else if (!handshakeDone && status == HandshakeStatus.NOT_HANDSHAKING) {
+        finishHandshake();
+      } else if (handshakeDone && isReadingPaused()) {
+        // the rest of the received data is decrypted once reading is resumed
+        return;
+      } else if (!unwrap()) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  void onReadingResumed() throws IOException {
+    if (!runningTasks) {
+      process();
+    }
+  }
+
+  private boolean isOpen() {
+    return engine != null && !engine.isInboundDone();
+  }
+
+  private void runDelegatedTasks() {
+    runningTasks = true;
+    delegatedTaskExecutor.execute(() -> {
+      Runnable task = engine.getDelegatedTask();
+      while (task != null) {
+        task.run();
+        task = engine.getDelegatedTask();
+      }
+      eventLoop().execute(this::resume);
+    });
+  }
+
+  private void resume() {
+    runningTasks = false;
+    try {
+      process();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  private void finishHandshake() throws IOException {
+    handshakeDone = true;
+    LOG.debug("Handshake finished with {}", engine.getSession().getProtocol());
+    if (sslSessionCache != null) {
+      sslSessionCache.handshakeCompleted(engine.getSession(), handshakeStart);
+    }
+    if (!pendingAppWrites.isEmpty()) {
+      wrap(pendingAppWrites.toArray(new ByteBuffer[0]));
+      pendingAppWrites.clear();
+    }
+    listener().onConnection();
+  }
+
+  private boolean unwrap() throws IOException {
+    netIn.flip();
+    SSLEngineResult result = engine.unwrap(netIn, appIn);
+    netIn.compact();
+
+    switch (result.getStatus()) {
+      case OK:
+        if (appIn.position() > 0) {
+          appIn.flip();
+          listener().onData(appIn);
+          appIn.clear();
+        }
+        return result.bytesConsumed() > 0 || result.bytesProduced() > 0
+            || result.getHandshakeStatus() == HandshakeStatus.NEED_WRAP
+            || result.getHandshakeStatus() == HandshakeStatus.NEED_TASK;
+      case BUFFER_OVERFLOW:
+        appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+        return true;
+      case BUFFER_UNDERFLOW:
+        netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+        return false;
+      case CLOSED:
+        closeChannel();
+        listener().onConnectionClosed();
+        return false;
+      default:
+        throw new SSLException("Unexpected unwrap status " + result.getStatus());
+    }
+  }
+
+  private ByteBuffer enlarge(ByteBuffer buffer, int size) {
+    if (buffer.capacity() >= size + buffer.position()) {
+      return buffer;
+    }
+
+    ByteBuffer enlarged = ByteBuffer.allocate(size + buffer.position());
+    buffer.flip();
+    enlarged.put(buffer);
+    return enlarged;
+  }
+
+  @Override
+  void onWrite(ByteBuffer[] buffers) throws IOException {
+    if (!handshakeDone) {
+      Collections.addAll(pendingAppWrites, buffers);
+      return;
+    }
+    wrap(buffers);
+  }
+
+  private void wrap(ByteBuffer... buffers) throws IOException {
+    do {
+      ByteBuffer netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+      SSLEngineResult result = engine.wrap(buffers, netOut);
+      if (result.getStatus() != SSLEngineResult.Status.OK
+          && result.getStatus() != SSLEngineResult.Status.CLOSED) {
+        throw new SSLException("Unexpected wrap status " + result.getStatus());
+      }
+
+      netOut.flip();
+      if (netOut.hasRemaining()) {
+        send(netOut);
+      }
+
+      if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+        return;
+      }
+    } while (hasRemaining(buffers));
+  }
+
+  private boolean hasRemaining(ByteBuffer[] buffers) {
+    for (ByteBuffer buffer : buffers) {
+      if (buffer.hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  void onClose() {
+    // best effort to notify the host, since the channel is closed right away
+    if (engine != null && handshakeDone) {
+      engine.closeOutbound();
+      try {
+        wrap(EMPTY);
+      } catch (IOException e) {
+        LOG.debug("Problem sending close notify", e);
+      }
+    }
+    super.onClose();
+  }
+
+}
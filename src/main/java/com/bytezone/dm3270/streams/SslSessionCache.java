@@ -0,0 +1,79 @@
+package com.bytezone.dm3270.streams;
+
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the SSL sessions established with terminal servers, which allows clients connecting to
+ * the same host and port to resume a previous session instead of doing a full handshake.
+ * <p>
+ * A cache is meant to be shared by all the {@link com.bytezone.dm3270.TerminalClient} instances
+ * connecting to the same hosts, and keeps count of resumed and full handshakes to allow verifying
+ * its effectiveness.
+ */
+public class SslSessionCache {
+
+  public static final int DEFAULT_SIZE = 20480;
+  public static final int DEFAULT_TIMEOUT_SECONDS = 86400;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SslSessionCache.class);
+
+  private final SSLContext sslContext;
+  private final AtomicLong resumedHandshakes = new AtomicLong();
+  private final AtomicLong fullHandshakes = new AtomicLong();
+
+  /**
+   * Creates a cache with default size and timeout.
+   *
+   * @param sslContext the {@link SSLContext} used to establish connections, which client session
+   * context holds the cached sessions.
+   */
+  public SslSessionCache(SSLContext sslContext) {
+    this(sslContext, DEFAULT_SIZE, DEFAULT_TIMEOUT_SECONDS);
+  }
+
+  /**
+   * Creates a cache with given size and timeout.
+   *
+   * @param sslContext the {@link SSLContext} used to establish connections, which client session
+   * context holds the cached sessions.
+   * @param size maximum number of sessions to keep, 0 for no limit.
+   * @param timeoutSeconds seconds a session may be resumed after it was established, 0 for no
+   * limit.
+   */
+  public SslSessionCache(SSLContext sslContext, int size, int timeoutSeconds) {
+    this.sslContext = sslContext;
+    // sessions are cached by the context per host and port
+    SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+    sessionContext.setSessionCacheSize(size);
+    sessionContext.setSessionTimeout(timeoutSeconds);
+  }
+
+  public SSLContext getSslContext() {
+    return sslContext;
+  }
+
+  public long getResumedHandshakes() {
+    return resumedHandshakes.get();
+  }
+
+  public long getFullHandshakes() {
+    return fullHandshakes.get();
+  }
+
+  // a resumed session keeps the creation time of the session it was resumed from
+  void handshakeCompleted(SSLSession session, long handshakeStartMillis) {
+    if (session.getCreationTime() < handshakeStartMillis) {
+      resumedHandshakes.incrementAndGet();
+      LOG.debug("Resumed session with {}:{}", session.getPeerHost(), session.getPeerPort());
+    } else {
+      fullHandshakes.incrementAndGet();
+      LOG.debug("Full handshake with {}:{}", session.getPeerHost(), session.getPeerPort());
+    }
+  }
+
+}
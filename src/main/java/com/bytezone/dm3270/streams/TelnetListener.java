@@ -4,6 +4,7 @@ import com.bytezone.dm3270.Charset;
 import com.bytezone.dm3270.buffers.Buffer;
 import com.bytezone.dm3270.buffers.ReplyBuffer;
 import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.commands.WriteCommandParser;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.extended.BindCommand;
 import com.bytezone.dm3270.extended.CommandHeader;
@@ -19,8 +20,10 @@ import com.bytezone.dm3270.telnet.TelnetCommandProcessor;
 import com.bytezone.dm3270.telnet.TelnetProcessor;
 import com.bytezone.dm3270.telnet.TelnetSubcommand;
 import com.bytezone.dm3270.telnet.TerminalTypeSubcommand;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +38,11 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
   private final Screen screen;
 
   private final TelnetProcessor telnetProcessor = new TelnetProcessor(this);
+  // a lock instead of a monitor, so a virtual thread blocked in a screen listener does not pin
+  // its carrier thread
+  private final ReentrantLock lock = new ReentrantLock();
+  // orders of the write command being received, parsed as its segments arrive
+  private WriteCommandParser pendingWrite;
 
   // Use this when not recording the session and running in TERMINAL mode.
   public TelnetListener(Screen screen, TelnetState telnetState) {
@@ -45,19 +53,45 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
     this.source = TelnetSocket.Source.SERVER;                  // listening to a server
   }
 
-  // This method is always called with a copy of the original buffer. It can be
+  // This method is called with buffers which are reused after the call. It can be
   // called from a background thread, so any GUI calls must be placed on the EDT.
   // Converts buffer arrays to Messages.
 
   @Override
-  public synchronized void listen(TelnetSocket.Source source, byte[] buffer, LocalDateTime dateTime,
+  public void listen(TelnetSocket.Source source, byte[] buffer, LocalDateTime dateTime,
       boolean genuine) {
     assert source == this.source : "Incorrect source: " + source + ", expecting: "
         + this.source;
 
-    telnetProcessor.listen(buffer);     // will call one of the processXXX routines
+    lock.lock();
+    try {
+      telnetProcessor.listen(buffer);     // will call one of the processXXX routines
 
-    telnetState.setLastAccess();
+      telnetState.setLastAccess();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Parses the received bytes in place, avoiding any copy of complete records.
+  @Override
+  public void listen(TelnetSocket.Source source, ByteBuffer buffer,
+      LocalDateTime dateTime, boolean genuine) {
+    assert source == this.source : "Incorrect source: " + source + ", expecting: "
+        + this.source;
+
+    lock.lock();
+    try {
+      telnetProcessor.listen(buffer);
+
+      telnetState.setLastAccess();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void setMaxRecordSize(int maxRecordSize) {
+    telnetProcessor.setMaxRecordSize(maxRecordSize);
   }
 
   @Override
@@ -66,24 +100,46 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
 
   @Override
   public void processData(byte[] buffer, int length) {
+    pendingWrite = null;
     LOG.warn("Unknown telnet data received: {}", Buffer.toHex(buffer, 0, length));
   }
 
+  @Override
+  public void processPartialRecord(byte[] data, int length) {
+    int commandOffset = telnetState.does3270Extended() ? 5 : 0;
+    if (pendingWrite == null) {
+      // only TN3270-DATA (data type 0) records contain 3270 commands
+      if (length <= commandOffset || commandOffset > 0 && data[0] != 0
+          || !WriteCommandParser.isWriteCommand(data[commandOffset])) {
+        return;
+      }
+      pendingWrite = new WriteCommandParser(commandOffset, screen.getCharset());
+    }
+    pendingWrite.parse(data, length);
+  }
+
   @Override
   public void processRecord(byte[] data, int dataPtr) {
+    processRecord(data, 0, dataPtr);
+  }
+
+  @Override
+  public void processRecord(byte[] data, int recordOffset, int recordLength) {
+    WriteCommandParser parsedWrite = pendingWrite;
+    pendingWrite = null;
     int offset;
     int length;
     CommandHeader.DataType dataType;
 
     CommandHeader currentCommandHeader;
     if (telnetState.does3270Extended()) {
-      offset = 5;
-      length = dataPtr - 7;         // exclude IAC/EOR and header
-      currentCommandHeader = new CommandHeader(data, 0, 5, charset);
+      offset = recordOffset + 5;
+      length = recordLength - 7;    // exclude IAC/EOR and header
+      currentCommandHeader = new CommandHeader(data, recordOffset, 5, charset);
       dataType = currentCommandHeader.getDataType();
     } else {
-      offset = 0;
-      length = dataPtr - 2;         // exclude IAC/EOR
+      offset = recordOffset;
+      length = recordLength - 2;    // exclude IAC/EOR
       currentCommandHeader = null;
       dataType = CommandHeader.DataType.TN3270_DATA;
     }
@@ -94,7 +150,9 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
         if (length <= 0) {
           command = currentCommandHeader;
         } else {
-          if (source == TelnetSocket.Source.SERVER) {
+          if (parsedWrite != null) {
+            command = parsedWrite.finish(data, offset, length);
+          } else if (source == TelnetSocket.Source.SERVER) {
             command = Command.getCommand(data, offset, length, screen.getCharset());
           } else {
             command = Command.getReply(data, offset, length, screen.getCharset());
@@ -143,6 +201,7 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
 
   @Override
   public void processTelnetCommand(byte[] data, int dataPtr) {
+    pendingWrite = null;
     TelnetCommand telnetCommand = new TelnetCommand(telnetState, data, dataPtr);
     addDataRecord(telnetCommand, SessionRecord.SessionRecordType.TELNET);
     telnetCommand.process(screen);       // updates TelnetState
@@ -150,6 +209,7 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
 
   @Override
   public void processTelnetSubcommand(byte[] data, int dataPtr) {
+    pendingWrite = null;
     TelnetSubcommand subcommand = null;
 
     if (data[2] == TelnetSubcommand.TERMINAL_TYPE) {
@@ -165,19 +225,15 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
 
   private void addDataRecord(ReplyBuffer message,
       SessionRecord.SessionRecordType sessionRecordType) {
-    // no gui involved
-    if (sessionRecordType == SessionRecord.SessionRecordType.TELNET) {
-      processMessage(message);
-    } else {
-      //TODO should we run this in a separate thread?
-      processMessage(message);
-    }
+    // no gui involved, and already in a separate thread when TerminalServer has a DecodingQueue
+    processMessage(message);
   }
 
   private void processMessage(ReplyBuffer message) {
     message.process(screen);
+    screen.publishSnapshot();
     Optional<Buffer> reply = message.getReply();
-    reply.ifPresent(buffer -> telnetState.write(buffer.getTelnetData()));
+    reply.ifPresent(telnetState::write);
   }
 
 }
@@ -3,6 +3,7 @@ package com.bytezone.dm3270.streams;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +21,7 @@ public class TelnetSocket implements Runnable {
   private InputStream inputStream;
 
   private final byte[] buffer = new byte[4096];
+  private final ByteBuffer message = ByteBuffer.wrap(buffer);
 
   private final BufferListener telnetListener;
   private volatile boolean running;
@@ -68,9 +70,9 @@ public class TelnetSocket implements Runnable {
           return;
         }
 
-        // take a copy of the input buffer and send it to the TelnetListener
-        byte[] message = new byte[bytesRead];
-        System.arraycopy(buffer, 0, message, 0, message.length);
+        // the input buffer is reused for every read, so listener must not keep it
+        message.clear();
+        message.limit(bytesRead);
         telnetListener.listen(source, message, LocalDateTime.now(), GENUINE);
       } catch (IOException e) {
         if (running) {
@@ -1,5 +1,6 @@
 package com.bytezone.dm3270.streams;
 
+import com.bytezone.dm3270.buffers.Buffer;
 import com.bytezone.dm3270.display.ScreenDimensions;
 import com.bytezone.dm3270.telnet.TN3270ExtendedSubcommand;
 import java.util.List;
@@ -7,10 +8,12 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class TelnetState implements Runnable {
+public class TelnetState {
 
   public static final byte[] NO_OP = {(byte) 0xFF, (byte) 0xF1};
 
+  public static final long DEFAULT_KEEP_ALIVE_IDLE_MILLIS = 120_000;
+
   private static final Logger LOG = LoggerFactory.getLogger(TelnetState.class);
 
   private static final String[] TERMINAL_TYPES =
@@ -37,8 +40,8 @@ public class TelnetState implements Runnable {
 
   // IO
   private AtomicLong lastAccess;
-  private volatile boolean running = false;
-  private Thread thread;
+  private volatile long keepAliveIdleMillis = DEFAULT_KEEP_ALIVE_IDLE_MILLIS;
+  private KeepAliveService.Registration keepAlive;
 
   private ScreenDimensions secondary = new ScreenDimensions(24, 80);
 
@@ -53,15 +56,30 @@ public class TelnetState implements Runnable {
   }
 
   public void setTerminalServer(TerminalServer terminalServer) {
+    setTerminalServer(terminalServer, KeepAliveService.getDefault());
+  }
+
+  void setTerminalServer(TerminalServer terminalServer, KeepAliveService keepAliveService) {
     this.terminalServer = terminalServer;
-    thread = new Thread(this);
-    thread.start();
+    keepAlive = keepAliveService.register(this);
+  }
+
+  public void setKeepAliveIdleMillis(long keepAliveIdleMillis) {
+    this.keepAliveIdleMillis = keepAliveIdleMillis;
+  }
+
+  long getKeepAliveIdleMillis() {
+    return keepAliveIdleMillis;
   }
 
   public void setLastAccess() {
     lastAccess.set(System.currentTimeMillis());
   }
 
+  long getLastAccess() {
+    return lastAccess.get();
+  }
+
   public void write(byte[] buffer) {
     if (terminalServer != null) {
       terminalServer.write(buffer);
@@ -70,47 +88,30 @@ public class TelnetState implements Runnable {
     lastAccess.set(System.currentTimeMillis());
   }
 
-  public int nextCommandHeaderSeq() {
-    return commandHeaderCount++;
-  }
+  public void write(Buffer message) {
+    if (terminalServer != null) {
+      terminalServer.write(message);
+    }
 
-  // This thread exists simply to keep the connection alive. It sleeps for a
-  // certain period, and when it wakes it issues a NOOP if nothing else has
-  // communicated with the server.
+    lastAccess.set(System.currentTimeMillis());
+  }
 
-  @Override
-  public void run() {
-    long lastTimeIChecked;
-    running = true;
-    long limit = 120;      // seconds to wait
-
-    while (running) {
-      try {
-        lastTimeIChecked = lastAccess.get();
-        long delay = (System.currentTimeMillis() - lastTimeIChecked) / 1000;
-        long sleep = limit - delay;
-
-        if (sleep > 1) {
-          Thread.sleep(sleep * 1000);
-        }
-
-        if (lastTimeIChecked == lastAccess.get()) {
-          write(NO_OP);
-        }
-      } catch (InterruptedException e) {
-        if (running) {
-          LOG.debug("TelnetState was interrupted.");
-        }
-        close();
-        return;
-      }
+  // sent from the keep alive thread, which must not block on the connection of the session
+  void writeKeepAlive() {
+    if (terminalServer != null) {
+      terminalServer.writeKeepAlive();
     }
+
+    lastAccess.set(System.currentTimeMillis());
+  }
+
+  public int nextCommandHeaderSeq() {
+    return commandHeaderCount++;
   }
 
   public void close() {
-    if (thread != null) {
-      running = false;
-      thread.interrupt();
+    if (keepAlive != null) {
+      keepAlive.cancel();
     }
   }
 
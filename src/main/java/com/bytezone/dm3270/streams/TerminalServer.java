@@ -1,35 +1,63 @@
 package com.bytezone.dm3270.streams;
 
 import com.bytezone.dm3270.ConnectionListener;
+import com.bytezone.dm3270.buffers.Buffer;
+import com.bytezone.dm3270.buffers.TelnetEncoder;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.telnet.RecordTooLargeException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.net.SocketFactory;
 
-public class TerminalServer implements Runnable {
+public class TerminalServer implements TransportListener {
+
+  // keep alives are queued by the thread shared by all the sessions, which must not wait for a host
+  // not reading, so blocking transports are flushed from these threads instead. A session stuck
+  // flushing keeps the flushing flag, so it holds at most one of them.
+  private static final ExecutorService KEEP_ALIVE_FLUSHER = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "dm3270-keepalive-flush");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   private final String serverURL;
   private final int serverPort;
-  private final SocketFactory socketFactory;
+  private final Transport transport;
   private int connectionTimeoutMillis;
   private ConnectionListener connectionListener;
 
-  private Socket serverSocket;
-  private OutputStream serverOut;
-
-  private final byte[] buffer = new byte[4096];
   private volatile boolean running;
+  // set when the server closes the connection while received data is still queued
+  private volatile boolean closedByServer;
+
+  // replies are queued so threads never block each other, and only one of them flushes at a time
+  private final Queue<Buffer> outbound = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean flushing = new AtomicBoolean();
+  // only used by the flushing thread
+  private final TelnetEncoder encoder = new TelnetEncoder();
+  private final ByteBuffer[] encodedBuffers = new ByteBuffer[1];
+  private volatile Thread receivingThread;
+  private DecodingQueue decodingQueue;
 
   private final BufferListener telnetListener;
 
   public TerminalServer(String serverURL, int serverPort, SocketFactory socketFactory,
       BufferListener listener) {
+    this(serverURL, serverPort, new SocketTransport(socketFactory), listener);
+  }
+
+  public TerminalServer(String serverURL, int serverPort, Transport transport,
+      BufferListener listener) {
     this.serverPort = serverPort;
     this.serverURL = serverURL;
-    this.socketFactory = socketFactory;
+    this.transport = transport;
     this.telnetListener = listener;
   }
 
@@ -41,44 +69,87 @@ public class TerminalServer implements Runnable {
     this.connectionListener = connectionListener;
   }
 
+  // received data is decoded in the executor instead of the transport thread
+  public void setDecodingQueue(int capacity, DecodingQueue.BackpressurePolicy backpressurePolicy,
+      Executor executor) {
+    decodingQueue =
+        new DecodingQueue(capacity, backpressurePolicy, executor, transport, this::decode);
+  }
+
+  public DecodingQueue getDecodingQueue() {
+    return decodingQueue;
+  }
+
+  public void connect() {
+    transport.connect(serverURL, serverPort, connectionTimeoutMillis, this);
+  }
+
+  @Override
+  public void onConnection() {
+    running = true;
+    if (connectionListener != null) {
+      connectionListener.onConnection();
+    }
+  }
+
   @Override
-  public void run() {
+  public void onData(ByteBuffer buffer) {
+    if (decodingQueue == null) {
+      decode(buffer);
+      return;
+    }
+
     try {
-      try {
-        serverSocket = socketFactory.createSocket();
-        serverSocket.connect(new InetSocketAddress(serverURL, serverPort), connectionTimeoutMillis);
-        if (connectionListener != null) {
-          connectionListener.onConnection();
-        }
-      } catch (IOException ex) {
-        handleException(ex);
-        return;
+      if (!decodingQueue.offer(buffer)) {
+        onException(new IOException("Decoding queue is full"));
       }
+    } catch (InterruptedException e) {
+      // only happens when the transport is closed while waiting for room in the queue
+      Thread.currentThread().interrupt();
+    }
+  }
 
-      InputStream serverIn = serverSocket.getInputStream();
-      serverOut = serverSocket.getOutputStream();
+  private void decode(ByteBuffer buffer) {
+    // replies to the segment are held until it is fully processed, to send them all together
+    receivingThread = Thread.currentThread();
+    try {
+      // the buffer of the transport is reused for every read, so it is parsed without any copy
+      telnetListener.listen(TelnetSocket.Source.SERVER, buffer, LocalDateTime.now(), true);
+    } catch (RecordTooLargeException e) {
+      // the stream can't be followed any more
+      onException(new IOException(e.getMessage(), e));
+      return;
+    } finally {
+      receivingThread = null;
+    }
+    flush();
+  }
 
-      running = true;
-      while (running) {
-        int bytesRead = serverIn.read(buffer);
-        if (bytesRead < 0) {
-          close();
-          if (connectionListener != null) {
-            connectionListener.onConnectionClosed();
-          }
-          break;
-        }
+  @Override
+  public void onConnectionClosed() {
+    if (decodingQueue == null) {
+      closeByServer();
+      return;
+    }
+    // screens sent by the server right before closing are still processed, as when decoding in
+    // the transport thread, and replies to them are discarded
+    closedByServer = true;
+    decodingQueue.afterDrained(this::closeByServer);
+  }
 
-        byte[] message = new byte[bytesRead];
-        System.arraycopy(buffer, 0, message, 0, bytesRead);
-        telnetListener.listen(TelnetSocket.Source.SERVER, message, LocalDateTime.now(), true);
-      }
-    } catch (IOException e) {
-      if (running) {
-        close();
-        handleException(e);
-      }
+  private void closeByServer() {
+    close();
+    if (connectionListener != null) {
+      connectionListener.onConnectionClosed();
+    }
+  }
+
+  @Override
+  public void onException(IOException ex) {
+    if (running) {
+      close();
     }
+    handleException(ex);
   }
 
   private void handleException(IOException ex) {
@@ -89,17 +160,64 @@ public class TerminalServer implements Runnable {
     }
   }
 
-  public synchronized void write(byte[] buffer) {
+  public void write(byte[] buffer) {
     // the no-op may come here if socket is closed from remote end and client has not been closed
     if (!running && buffer == TelnetState.NO_OP) {
       return;
     }
 
-    try {
-      serverOut.write(buffer);
-      serverOut.flush();
-    } catch (IOException e) {
-      handleException(e);
+    write(new RawData(buffer));
+  }
+
+  // messages are framed when flushed, straight into the buffer written to the transport
+  public void write(Buffer message) {
+    outbound.add(message);
+    if (Thread.currentThread() != receivingThread) {
+      flush();
+    }
+  }
+
+  // queued with the rest of the replies, but never flushed by the calling thread if it may block
+  void writeKeepAlive() {
+    if (!running) {
+      return;
+    }
+    outbound.add(new RawData(TelnetState.NO_OP));
+    if (transport.blocksOnWrite()) {
+      KEEP_ALIVE_FLUSHER.execute(this::flush);
+    } else {
+      flush();
+    }
+  }
+
+  private void flush() {
+    if (closedByServer) {
+      outbound.clear();
+      return;
+    }
+    // re check the queue after releasing the flag, since a producer may have failed to get it
+    while (!outbound.isEmpty() && flushing.compareAndSet(false, true)) {
+      try {
+        encoder.reset();
+        Buffer message = outbound.poll();
+        while (message != null) {
+          message.encodeTelnetData(encoder);
+          message = outbound.poll();
+        }
+        if (encoder.size() > 0) {
+          if (transport.releasesBuffersOnWrite()) {
+            encodedBuffers[0] = encoder.getByteBuffer();
+            transport.write(encodedBuffers);
+          } else {
+            // the encoder can't be reused while the transport holds its buffer
+            transport.write(ByteBuffer.wrap(encoder.toByteArray()));
+          }
+        }
+      } catch (IOException e) {
+        handleException(e);
+      } finally {
+        flushing.set(false);
+      }
     }
   }
 
@@ -107,8 +225,10 @@ public class TerminalServer implements Runnable {
     try {
       running = false;
 
-      if (serverSocket != null) {
-        serverSocket.close();
+      transport.close();
+
+      if (decodingQueue != null) {
+        decodingQueue.clear();
       }
 
       if (telnetListener != null) {
@@ -119,9 +239,47 @@ public class TerminalServer implements Runnable {
     }
   }
 
+  public boolean isConnected() {
+    return running;
+  }
+
+  public void awaitTermination() throws InterruptedException {
+    transport.awaitTermination();
+  }
+
   @Override
   public String toString() {
     return String.format("TerminalSocket listening to %s : %d", serverURL, serverPort);
   }
 
+  // bytes already framed, like telnet commands
+  private static final class RawData implements Buffer {
+
+    private final byte[] data;
+
+    private RawData(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public byte[] getData() {
+      return data;
+    }
+
+    @Override
+    public byte[] getTelnetData() {
+      return data;
+    }
+
+    @Override
+    public int size() {
+      return data.length;
+    }
+
+    @Override
+    public void process(Screen screen) {
+    }
+
+  }
+
 }
@@ -0,0 +1,87 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Moves bytes between a {@link TerminalServer} and the terminal server host.
+ * <p>
+ * Connection events and received bytes are delivered to the {@link TransportListener} given on
+ * connect, from whatever thread the implementation does its I/O on.
+ */
+public interface Transport {
+
+  /**
+   * Starts connecting to the host. This method returns immediately, and the outcome of the
+   * connection is notified to the listener.
+   *
+   * @param host host name of the terminal server.
+   * @param port port where the terminal server is listening for connections.
+   * @param connectionTimeoutMillis millis to wait for the connection to be established, 0 for no
+   * timeout.
+   * @param listener listener to notify connection events and received data to.
+   */
+  void connect(String host, int port, int connectionTimeoutMillis, TransportListener listener);
+
+  /**
+   * Sends the given buffers to the host, as few writes to the socket as possible.
+   *
+   * @param buffers buffers to send, in order. Implementations may keep them until they are
+   * actually sent, so they must not be modified after the call.
+   * @throws IOException thrown when the buffers can't be sent.
+   */
+  void write(ByteBuffer... buffers) throws IOException;
+
+  /**
+   * Tells whether {@link #write(ByteBuffer...)} may block the calling thread until the host takes
+   * the data, as with a host which is not reading from the connection.
+   *
+   * @return false if the data is only handed over to the thread sending it. By default true.
+   */
+  default boolean blocksOnWrite() {
+    return true;
+  }
+
+  /**
+   * Tells whether the buffers given to {@link #write(ByteBuffer...)} are no longer used once the
+   * method returns, so they may be reused to write further data.
+   *
+   * @return true if the data is sent or copied before returning from write. By default false.
+   */
+  default boolean releasesBuffersOnWrite() {
+    return false;
+  }
+
+  /**
+   * Tells whether received data is delivered from a thread shared with other connections, which
+   * must never block waiting for the data to be processed.
+   *
+   * @return true if the transport stops receiving data with {@link #setReadingPaused(boolean)}
+   * instead. By default false.
+   */
+  default boolean sharesReceivingThread() {
+    return false;
+  }
+
+  /**
+   * Stops or resumes reading from the host, so TCP flow control slows down the host while the
+   * received data can't be processed. It may be called from any thread, and when called from the
+   * receiving thread no more data is delivered until reading is resumed.
+   *
+   * @param paused true to stop reading, false to resume it.
+   */
+  default void setReadingPaused(boolean paused) {
+    throw new UnsupportedOperationException("Reading can't be paused");
+  }
+
+  void close() throws IOException;
+
+  /**
+   * Waits for any thread owned by the transport to finish after {@link #close()}.
+   *
+   * @throws InterruptedException thrown when the wait is interrupted.
+   */
+  default void awaitTermination() throws InterruptedException {
+  }
+
+}
@@ -0,0 +1,12 @@
+package com.bytezone.dm3270.streams;
+
+/**
+ * Creates the {@link Transport} of each connection of a client, allowing to replace the network
+ * with other means of communication with the terminal server, like a {@link LoopbackTransport}.
+ */
+@FunctionalInterface
+public interface TransportFactory {
+
+  Transport createTransport();
+
+}
@@ -0,0 +1,17 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface TransportListener {
+
+  void onConnection();
+
+  // the buffer is only valid during the call, it is reused by the transport afterwards
+  void onData(ByteBuffer buffer);
+
+  void onConnectionClosed();
+
+  void onException(IOException ex);
+
+}
@@ -0,0 +1,73 @@
+package com.bytezone.dm3270.telnet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Buffers shared by all the sessions, to hold records split across segments and telnet commands
+// only while they are being received, and segments waiting in decoding queues. Buffers are grouped
+// in power of two sizes, and only the smaller sizes are kept, since big records are rare.
+public final class RecordBufferPool {
+
+  private static final int MIN_SIZE_BITS = 10;
+  private static final int MAX_POOLED_SIZE_BITS = 16;
+  private static final int MAX_POOLED_PER_SIZE = 64;
+
+  private static final RecordBufferPool DEFAULT = new RecordBufferPool();
+
+  private final List<SizeClass> sizeClasses = new ArrayList<>();
+
+  private RecordBufferPool() {
+    for (int bits = MIN_SIZE_BITS; bits <= MAX_POOLED_SIZE_BITS; bits++) {
+      sizeClasses.add(new SizeClass());
+    }
+  }
+
+  public static RecordBufferPool getDefault() {
+    return DEFAULT;
+  }
+
+  public byte[] acquire(int minSize) {
+    int bits = sizeBits(minSize);
+    if (bits > MAX_POOLED_SIZE_BITS) {
+      return new byte[minSize];
+    }
+
+    SizeClass sizeClass = sizeClasses.get(bits - MIN_SIZE_BITS);
+    byte[] buffer = sizeClass.buffers.poll();
+    if (buffer == null) {
+      return new byte[1 << bits];
+    }
+    sizeClass.size.decrementAndGet();
+    return buffer;
+  }
+
+  private static int sizeBits(int size) {
+    return Math.max(MIN_SIZE_BITS, 32 - Integer.numberOfLeadingZeros(size - 1));
+  }
+
+  public void release(byte[] buffer) {
+    int bits = sizeBits(buffer.length);
+    // buffers not allocated by the pool, or too big to keep, are left to the garbage collector
+    if (buffer.length != 1 << bits || bits > MAX_POOLED_SIZE_BITS) {
+      return;
+    }
+
+    SizeClass sizeClass = sizeClasses.get(bits - MIN_SIZE_BITS);
+    if (sizeClass.size.incrementAndGet() > MAX_POOLED_PER_SIZE) {
+      sizeClass.size.decrementAndGet();
+      return;
+    }
+    sizeClass.buffers.add(buffer);
+  }
+
+  private static final class SizeClass {
+
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+  }
+
+}
@@ -0,0 +1,13 @@
+package com.bytezone.dm3270.telnet;
+
+/**
+ * Thrown when a record received from the terminal server exceeds the maximum record size, after
+ * which the rest of the stream can't be followed.
+ */
+public class RecordTooLargeException extends IllegalStateException {
+
+  public RecordTooLargeException(int maxRecordSize) {
+    super("Received record exceeds the maximum record size of " + maxRecordSize + " bytes");
+  }
+
+}
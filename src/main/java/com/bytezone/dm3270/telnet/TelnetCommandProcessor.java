@@ -6,6 +6,18 @@ public interface TelnetCommandProcessor {
 
   void processRecord(byte[] buffer, int length);
 
+  // length includes the IAC EOR closing the record
+  default void processRecord(byte[] buffer, int offset, int length) {
+    byte[] record = new byte[length];
+    System.arraycopy(buffer, offset, record, 0, length);
+    processRecord(record, length);
+  }
+
+  // called after each segment with the bytes received so far of a record not yet complete,
+  // doubled IACs already removed
+  default void processPartialRecord(byte[] buffer, int length) {
+  }
+
   void processTelnetCommand(byte[] buffer, int length);
 
   void processTelnetSubcommand(byte[] buffer, int length);
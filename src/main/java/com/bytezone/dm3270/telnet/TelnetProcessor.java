@@ -1,7 +1,11 @@
 package com.bytezone.dm3270.telnet;
 
+import java.nio.ByteBuffer;
+
 public class TelnetProcessor {
 
+  public static final int DEFAULT_MAX_RECORD_SIZE = 1 << 20;
+
   // single-byte commands
   public static final byte EOR = (byte) 0xEF;   // End of record
 
@@ -20,95 +24,255 @@ public class TelnetProcessor {
   private static final byte DO = (byte) 0xFD;
   private static final byte DONT = (byte) 0xFE;
 
+  private static final byte[] EMPTY = new byte[0];
+  // buffers up to this size are kept between records, bigger ones are returned to the pool
+  private static final int KEPT_BUFFER_SIZE = 4096;
+
   // state variables
-  private final byte[] data = new byte[16500];      // see also SessionReader
+  private byte[] data = EMPTY;          // taken from the pool when a record is incomplete
   private int dataPtr;
+  private int maxRecordSize = DEFAULT_MAX_RECORD_SIZE;
   private boolean pending;              // last byte was IAC, must check next byte
   private boolean weirdData;            // when stream starts with two IACs
   private byte command;                 // one of DO, DONT, WILL, WONT
 
   // command processor
   private final TelnetCommandProcessor commandProcessor;
+  private final RecordBufferPool bufferPool = RecordBufferPool.getDefault();
 
   public TelnetProcessor(TelnetCommandProcessor commandProcessor) {
     this.commandProcessor = commandProcessor;
   }
 
+  // Records (or telnet commands) bigger than the limit make listen throw a
+  // RecordTooLargeException, since the rest of the stream can't be trusted after discarding part
+  // of it.
+  public void setMaxRecordSize(int maxRecordSize) {
+    this.maxRecordSize = maxRecordSize;
+  }
+
+  // Runs of data bytes are copied in bulk, only IACs and the bytes of telnet commands are
+  // processed one by one. The given buffer is not modified.
   public void listen(byte... buffer) {
-    for (byte thisByte : buffer) {
-      data[dataPtr++] = thisByte;           // store every byte we receive
-
-      if (thisByte == IAC) {
-        // previous byte might have been an IAC
-        if (pending) {
-          pending = false;                  // treat it as a data 0xFF
-          --dataPtr;                        // remove the second one
-          // if there is just that data 0xFF in the
-          if (dataPtr == 1) {
-            weirdData = true;               // buffer, then flag it
-          }
-        } else {
-          pending = true;                   // this byte might be an IAC
-        }
-        continue;
+    int pos = 0;
+    while (pos < buffer.length) {
+      if (!pending && command == 0 && buffer[pos] != IAC) {
+        pos = appendData(buffer, pos, buffer.length);
+      } else {
+        listen(buffer[pos++]);
       }
+    }
+    notifyPartialRecord();
+  }
 
-      // previous byte really was an IAC
-      if (pending) {
-        pending = false;
+  // Parses the received bytes in place, so complete 3270 records are passed to the command
+  // processor straight from the given buffer, and only partial records and telnet commands are
+  // copied to the data array. The content of the buffer is consumed (doubled IACs are removed).
+  public void listen(ByteBuffer buffer) {
+    if (!buffer.hasArray()) {
+      while (buffer.hasRemaining()) {
+        listen(buffer.get());
+      }
+      notifyPartialRecord();
+      return;
+    }
 
-        // first check for a valid 3270 data record
-        if (thisByte == EOR) {
-          commandProcessor.processRecord(data, dataPtr);
-          reset();
-          continue;
-        }
+    byte[] array = buffer.array();
+    int pos = buffer.arrayOffset() + buffer.position();
+    int end = buffer.arrayOffset() + buffer.limit();
+    while (pos < end) {
+      if (pending || command != 0 || array[pos] == IAC) {
+        listen(array[pos++]);
+      } else if (dataPtr == 0) {
+        pos = processRecordInPlace(array, pos, end);
+      } else {
+        pos = appendData(array, pos, end);
+      }
+    }
+    buffer.position(buffer.limit());
+    notifyPartialRecord();
+  }
 
-        // next remove any non-telnet data
-        // some non-telnet data is in the buffer
-        if (data[0] != IAC || weirdData) {
-          dataPtr -= 2;                     // hide IAC and this byte
-          commandProcessor.processData(data, dataPtr);
-          reset();
+  private void listen(byte thisByte) {
+    append(thisByte);                     // store every byte we receive
 
-          data[dataPtr++] = IAC;            // drop through and process the new byte
-          data[dataPtr++] = thisByte;
+    if (thisByte == IAC) {
+      // previous byte might have been an IAC
+      if (pending) {
+        pending = false;                  // treat it as a data 0xFF
+        --dataPtr;                        // remove the second one
+        // if there is just that data 0xFF in the
+        if (dataPtr == 1) {
+          weirdData = true;               // buffer, then flag it
         }
+      } else {
+        pending = true;                   // this byte might be an IAC
+      }
+      return;
+    }
 
-        // leave IAC SB in buffer
-        if (thisByte == SB) {
-          continue;
-        }
+    // previous byte really was an IAC
+    if (pending) {
+      pending = false;
 
-        if (thisByte == SE) {
-          commandProcessor.processTelnetSubcommand(data, dataPtr);
-          reset();
-          continue;
-        }
+      // first check for a valid 3270 data record
+      if (thisByte == EOR) {
+        commandProcessor.processRecord(data, dataPtr);
+        reset();
+        return;
+      }
 
-        // known three-byte commands
-        if (thisByte == DO || thisByte == DONT || thisByte == WILL | thisByte == WONT) {
-          command = thisByte;               // save it and wait for the third byte
-          continue;
-        }
+      // next remove any non-telnet data
+      // some non-telnet data is in the buffer
+      if (data[0] != IAC || weirdData) {
+        dataPtr -= 2;                     // hide IAC and this byte
+        commandProcessor.processData(data, dataPtr);
+        reset();
 
-        // known two-byte commands
-        if (thisByte == NOP || thisByte == IP) {
-          commandProcessor.processTelnetCommand(data, dataPtr);
-          reset();
-          continue;
-        }
+        append(IAC);                      // drop through and process the new byte
+        append(thisByte);
+      }
 
-        System.err.printf("Unknown command: %02X%n", thisByte);   // handle error somehow
-        // the third byte has arrived (in thisByte)
-      } else if (command != 0) {
+      // leave IAC SB in buffer
+      if (thisByte == SB) {
+        return;
+      }
+
+      if (thisByte == SE) {
+        commandProcessor.processTelnetSubcommand(data, dataPtr);
+        reset();
+        return;
+      }
+
+      // known three-byte commands
+      if (thisByte == DO || thisByte == DONT || thisByte == WILL | thisByte == WONT) {
+        command = thisByte;               // save it and wait for the third byte
+        return;
+      }
+
+      // known two-byte commands
+      if (thisByte == NOP || thisByte == IP) {
         commandProcessor.processTelnetCommand(data, dataPtr);
         reset();
+        return;
       }
+
+      System.err.printf("Unknown command: %02X%n", thisByte);   // handle error somehow
+      // the third byte has arrived (in thisByte)
+    } else if (command != 0) {
+      commandProcessor.processTelnetCommand(data, dataPtr);
+      reset();
     }
   }
 
+  // allows processing a record while the rest of it is received
+  private void notifyPartialRecord() {
+    // telnet commands and subcommands start with IAC
+    if (dataPtr > 0 && data[0] != IAC && command == 0) {
+      commandProcessor.processPartialRecord(data, pending ? dataPtr - 1 : dataPtr);
+    }
+  }
+
+  private void append(byte thisByte) {
+    // pooled buffers may be bigger than the maximum record size
+    if (dataPtr == data.length || dataPtr == maxRecordSize) {
+      ensureCapacity(dataPtr + 1);
+    }
+    data[dataPtr++] = thisByte;
+  }
+
+  private void ensureCapacity(int size) {
+    if (size > maxRecordSize) {
+      reset();
+      throw recordTooLarge();
+    }
+    if (size <= data.length) {
+      return;
+    }
+
+    int newSize = Math.max(size, Math.max(data.length * 2, KEPT_BUFFER_SIZE));
+    byte[] enlarged = bufferPool.acquire(Math.min(newSize, maxRecordSize));
+    System.arraycopy(data, 0, enlarged, 0, dataPtr);
+    releaseData();
+    data = enlarged;
+  }
+
+  private RecordTooLargeException recordTooLarge() {
+    return new RecordTooLargeException(maxRecordSize);
+  }
+
+  private void releaseData() {
+    if (data != EMPTY) {
+      bufferPool.release(data);
+      data = EMPTY;
+    }
+  }
+
+  // Copies the data bytes up to the next IAC, which is the same as listening to them one by one
+  // when no IAC or command is pending.
+  private int appendData(byte[] buffer, int start, int end) {
+    int iac = indexOfIac(buffer, start, end);
+    int length = iac - start;
+    ensureCapacity(dataPtr + length);
+    System.arraycopy(buffer, start, data, dataPtr, length);
+    dataPtr += length;
+    return iac;
+  }
+
+  private static int indexOfIac(byte[] buffer, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (buffer[i] == IAC) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  private int processRecordInPlace(byte[] buffer, int start, int end) {
+    int read = start;
+    int write = start;
+    while (read < end) {
+      int iac = indexOfIac(buffer, read, end);
+      // data runs only need moving once a doubled IAC has been removed
+      if (write != read) {
+        System.arraycopy(buffer, read, buffer, write, iac - read);
+      }
+      write += iac - read;
+      read = iac;
+
+      // wait for the next segment to know what the IAC means
+      if (read + 1 >= end) {
+        break;
+      }
+
+      byte nextByte = buffer[read + 1];
+      if (nextByte == IAC) {
+        buffer[write++] = IAC;              // treat it as a data 0xFF
+        read += 2;
+      } else if (nextByte == EOR) {
+        buffer[write++] = IAC;
+        buffer[write++] = EOR;
+        if (write - start > maxRecordSize) {
+          throw recordTooLarge();
+        }
+        commandProcessor.processRecord(buffer, start, write - start);
+        return read + 2;
+      } else {
+        break;                              // any other command is processed byte by byte
+      }
+    }
+
+    // the record continues in the next segment, or is interrupted by a command
+    ensureCapacity(write - start);
+    dataPtr = write - start;
+    System.arraycopy(buffer, start, data, 0, dataPtr);
+    return read;
+  }
+
   private void reset() {
+    if (data.length > KEPT_BUFFER_SIZE) {
+      releaseData();
+    }
     dataPtr = 0;
     command = 0;
     weirdData = false;
@@ -0,0 +1,70 @@
+package com.bytezone.dm3270;
+
+import com.bytezone.dm3270.streams.LoopbackHost;
+import com.bytezone.dm3270.streams.LoopbackTransport.HostConnection;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import us.abstracta.wiresham.ClientPacketStep;
+import us.abstracta.wiresham.Flow;
+import us.abstracta.wiresham.Packet;
+import us.abstracta.wiresham.PacketStep;
+
+/*
+Replays a wiresham flow without delays, since latency is simulated by the transport. Client steps
+are matched against the accumulated received bytes, since the client may send several of them in
+one write.
+ */
+public class FlowLoopbackHost implements LoopbackHost {
+
+  private final List<PacketStep> steps;
+  private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+  private int nextStep;
+
+  public FlowLoopbackHost(Flow flow) {
+    this.steps = flow.getSteps();
+  }
+
+  @Override
+  public void onConnection(HostConnection connection) {
+    sendServerSteps(connection);
+  }
+
+  private void sendServerSteps(HostConnection connection) {
+    while (nextStep < steps.size() && !(steps.get(nextStep) instanceof ClientPacketStep)) {
+      connection.send(getBytes(steps.get(nextStep++)));
+    }
+  }
+
+  private byte[] getBytes(PacketStep step) {
+    return Packet.fromHexDump(step.getData()).getBytes();
+  }
+
+  @Override
+  public void onData(HostConnection connection, ByteBuffer data) {
+    byte[] bytes = new byte[data.remaining()];
+    data.get(bytes);
+    received.write(bytes, 0, bytes.length);
+
+    byte[] pending = received.toByteArray();
+    int offset = 0;
+    while (nextStep < steps.size() && steps.get(nextStep) instanceof ClientPacketStep) {
+      byte[] expected = getBytes(steps.get(nextStep));
+      if (pending.length - offset < expected.length) {
+        break;
+      }
+      byte[] actual = Arrays.copyOfRange(pending, offset, offset + expected.length);
+      if (!Arrays.equals(expected, actual)) {
+        throw new IllegalStateException("Unexpected client data " + Packet.fromBytes(actual, 0,
+            actual.length) + ", expecting " + steps.get(nextStep));
+      }
+      offset += expected.length;
+      nextStep++;
+      sendServerSteps(connection);
+    }
+    received.reset();
+    received.write(pending, offset, pending.length - offset);
+  }
+
+}
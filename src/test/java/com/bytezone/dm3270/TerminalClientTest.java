@@ -1,6 +1,7 @@
 package com.bytezone.dm3270;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.when;
@@ -12,19 +13,27 @@ import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.ScreenContext;
 import com.bytezone.dm3270.display.ScreenDimensions;
 import com.bytezone.dm3270.display.ScreenPosition;
+import com.bytezone.dm3270.streams.DecodingQueue;
+import com.bytezone.dm3270.streams.LoopbackTransport;
+import com.bytezone.dm3270.streams.NioEventLoopGroup;
+import com.bytezone.dm3270.streams.SessionThreads;
+import com.bytezone.dm3270.streams.SslSessionCache;
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 import java.awt.Point;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.ServerSocket;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -222,6 +231,44 @@ public class TerminalClientTest {
     connectClient();
   }
 
+  @Test
+  public void shouldGetWelcomeScreenWhenConnectWithSslAndEventLoopGroup() throws Exception {
+    cleanShutdown();
+    service.setSslEnabled(true);
+    System.setProperty("javax.net.ssl.keyStore", getResourceFilePath("/keystore.jks"));
+    System.setProperty("javax.net.ssl.keyStorePassword", "changeit");
+    service.start();
+    try (NioEventLoopGroup eventLoopGroup = new NioEventLoopGroup(1)) {
+      client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+      client.setEventLoopGroup(eventLoopGroup);
+      client.setSslContext(buildSslContext());
+      connectClient();
+      awaitKeyboardUnlock();
+      assertThat(getScreenText())
+          .isEqualTo(getWelcomeScreen());
+      client.disconnect();
+    }
+  }
+
+  @Test
+  public void shouldResumeSslSessionWhenReconnectWithSslSessionCache() throws Exception {
+    cleanShutdown();
+    service.setSslEnabled(true);
+    System.setProperty("javax.net.ssl.keyStore", getResourceFilePath("/keystore.jks"));
+    System.setProperty("javax.net.ssl.keyStorePassword", "changeit");
+    service.start();
+    SslSessionCache sslSessionCache = new SslSessionCache(buildSslContext());
+    for (int i = 0; i < 2; i++) {
+      client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+      client.setSslSessionCache(sslSessionCache);
+      connectClient();
+      awaitKeyboardUnlock();
+      client.disconnect();
+    }
+    assertThat(new long[]{sslSessionCache.getFullHandshakes(),
+        sslSessionCache.getResumedHandshakes()}).containsExactly(1, 1);
+  }
+
   private SSLContext buildSslContext() throws GeneralSecurityException {
     SSLContext sslContext = SSLContext.getInstance("TLS");
     TrustManager trustManager = new X509TrustManager() {
@@ -264,6 +311,142 @@ public class TerminalClientTest {
         .isEqualTo(getUserMenuScreen());
   }
 
+  @Test
+  public void shouldGetUserMenuScreenWhenSendUserFieldWithEventLoopGroup() throws Exception {
+    cleanShutdown();
+    startServiceWithFlow("/login.yml");
+    try (NioEventLoopGroup eventLoopGroup = new NioEventLoopGroup(1)) {
+      client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+      client.setEventLoopGroup(eventLoopGroup);
+      connectClient();
+      awaitKeyboardUnlock();
+      sendUserFieldByCoord();
+      awaitKeyboardUnlock();
+      assertThat(getScreenText())
+          .isEqualTo(getUserMenuScreen());
+      client.disconnect();
+    }
+  }
+
+  @Test
+  public void shouldLeaseSameSessionWhenReleasedToPool() throws Exception {
+    cleanShutdown();
+    startServiceWithFlow("/login.yml");
+    try (TerminalClientPool pool = new TerminalClientPool(
+        () -> new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS), SERVICE_HOST,
+        service.getPort(), 1)) {
+      pool.start();
+      client = pool.lease(TIMEOUT_MILLIS);
+      awaitKeyboardUnlock();
+      pool.release(client);
+      TerminalClient leased = pool.lease(TIMEOUT_MILLIS);
+      assertThat(leased).isSameAs(client);
+      pool.release(leased);
+    }
+  }
+
+  @Test
+  public void shouldReplaceLeasedSessionWhenDisconnectedWithoutRelease() throws Exception {
+    cleanShutdown();
+    startServiceWithFlow("/login.yml");
+    try (TerminalClientPool pool = new TerminalClientPool(
+        () -> new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS), SERVICE_HOST,
+        service.getPort(), 1)) {
+      pool.setMaintenancePeriodMillis(100);
+      pool.start();
+      TerminalClient disconnected = pool.lease(TIMEOUT_MILLIS);
+      disconnected.disconnect();
+      client = pool.lease(TIMEOUT_MILLIS);
+      assertThat(client).isNotSameAs(disconnected);
+      pool.release(client);
+    }
+  }
+
+  @Test
+  public void shouldGetWelcomeScreenWhenConnectWithConnector() throws Exception {
+    cleanShutdown();
+    startServiceWithFlow("/login.yml");
+    try (TerminalClientConnector connector = new TerminalClientConnector(10, 1)) {
+      client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+      exceptionWaiter = new ExceptionWaiter();
+      client.setConnectionListener(exceptionWaiter);
+      connector.connect(client, SERVICE_HOST, service.getPort())
+          .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      awaitKeyboardUnlock();
+      assertThat(getScreenText())
+          .isEqualTo(getWelcomeScreen());
+      assertThat(client.getConnectionListener()).isSameAs(exceptionWaiter);
+    }
+  }
+
+  @Test
+  public void shouldFailConnectionWaitingToRetryWhenConnectorIsClosed() throws Exception {
+    cleanShutdown();
+    startServiceWithFlow("/login.yml");
+    int closedPort;
+    try (ServerSocket serverSocket = new ServerSocket(0)) {
+      closedPort = serverSocket.getLocalPort();
+    }
+    CompletableFuture<TerminalClient> connection;
+    try (TerminalClientConnector connector = new TerminalClientConnector(10, 1)) {
+      connector.setBackoffMillis(TIMEOUT_MILLIS * 10, TIMEOUT_MILLIS * 10);
+      client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+      exceptionWaiter = new ExceptionWaiter();
+      client.setConnectionListener(exceptionWaiter);
+      connection = connector.connect(client, SERVICE_HOST, closedPort);
+      exceptionWaiter.awaitException();
+    }
+    assertThatThrownBy(() -> connection.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+        .isInstanceOf(ExecutionException.class);
+  }
+
+  @Test
+  public void shouldGetUserMenuScreenWhenSendUserFieldWithDecodingQueue() throws Exception {
+    cleanShutdown();
+    startServiceWithFlow("/login.yml");
+    client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+    client.setDecodingQueue(16, DecodingQueue.BackpressurePolicy.BLOCK);
+    connectClient();
+    awaitKeyboardUnlock();
+    sendUserFieldByCoord();
+    awaitKeyboardUnlock();
+    assertThat(getScreenText())
+        .isEqualTo(getUserMenuScreen());
+  }
+
+  @Test
+  public void shouldGetUserMenuScreenWhenSendUserFieldWithSessionThreads() throws Exception {
+    cleanShutdown();
+    startServiceWithFlow("/login.yml");
+    client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+    client.setThreadFactory(SessionThreads.virtualIfAvailable());
+    connectClient();
+    awaitKeyboardUnlock();
+    sendUserFieldByCoord();
+    awaitKeyboardUnlock();
+    assertThat(getScreenText())
+        .isEqualTo(getUserMenuScreen());
+  }
+
+  @Test
+  public void shouldGetUserMenuScreenWhenSendUserFieldWithLoopbackTransport() throws Exception {
+    cleanShutdown();
+    Flow flow = Flow.fromYml(new File(getResourceFilePath("/login.yml")));
+    client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+    client.setTransportFactory(() -> {
+      LoopbackTransport transport = new LoopbackTransport(new FlowLoopbackHost(flow));
+      transport.setLatencyMillis(5);
+      transport.setBytesPerSecond(1_000_000);
+      return transport;
+    });
+    client.connect(SERVICE_HOST, 23);
+    awaitKeyboardUnlock();
+    sendUserFieldByCoord();
+    awaitKeyboardUnlock();
+    assertThat(getScreenText())
+        .isEqualTo(getUserMenuScreen());
+  }
+
   private void sendUserFieldByCoord() {
     sendFieldByCoord(1, 27, USERNAME);
   }
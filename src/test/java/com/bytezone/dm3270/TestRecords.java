@@ -0,0 +1,30 @@
+package com.bytezone.dm3270;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Comparator;
+import us.abstracta.wiresham.Flow;
+import us.abstracta.wiresham.Packet;
+import us.abstracta.wiresham.ServerPacketStep;
+
+/*
+Records taken from the recorded flows, to process them without connecting to a server.
+ */
+public final class TestRecords {
+
+  private TestRecords() {
+  }
+
+  // the biggest screen of the login flow, without the closing IAC EOR, in a new array each time
+  public static byte[] biggestLoginScreen() throws FileNotFoundException {
+    File flowFile = new File(TestRecords.class.getResource("/login.yml").getFile());
+    byte[] packet = Flow.fromYml(flowFile).getSteps().stream()
+        .filter(s -> s instanceof ServerPacketStep)
+        .map(s -> Packet.fromHexDump(s.getData()).getBytes())
+        .max(Comparator.comparingInt(b -> b.length))
+        .get();
+    return Arrays.copyOf(packet, packet.length - 2);
+  }
+
+}
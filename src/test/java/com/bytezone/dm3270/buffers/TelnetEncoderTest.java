@@ -0,0 +1,31 @@
+package com.bytezone.dm3270.buffers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.commands.ReadCommand;
+import org.junit.Test;
+
+public class TelnetEncoderTest {
+
+  private static final byte[] DATA = {(byte) 0xF2, (byte) 0xFF, 0x01, (byte) 0xFF, (byte) 0xFF,
+      0x02};
+
+  @Test
+  public void shouldEncodeSameBytesAsTelnetDataWhenBufferContainsIacs() {
+    ReadCommand command = new ReadCommand(DATA, 0, DATA.length);
+    TelnetEncoder encoder = new TelnetEncoder(4);
+    command.encodeTelnetData(encoder);
+    assertThat(encoder.toByteArray()).isEqualTo(command.getTelnetData());
+  }
+
+  @Test
+  public void shouldEncodeOnlyNewMessageWhenReset() {
+    ReadCommand command = new ReadCommand(DATA, 0, DATA.length);
+    TelnetEncoder encoder = new TelnetEncoder();
+    command.encodeTelnetData(encoder);
+    encoder.reset();
+    command.encodeTelnetData(encoder);
+    assertThat(encoder.toByteArray()).isEqualTo(command.getTelnetData());
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.bytezone.dm3270.commands;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.TestRecords;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.display.ScreenPosition;
+import com.bytezone.dm3270.orders.Order;
+import com.bytezone.dm3270.streams.TelnetState;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class WriteCommandParserTest {
+
+  private static final Charset CHARSET = Charset.CP1047;
+  private static final int SEGMENT_SIZE = 100;
+
+  private static byte[] record;
+
+  @BeforeClass
+  public static void setupClass() throws Exception {
+    CHARSET.load();
+    record = TestRecords.biggestLoginScreen();
+  }
+
+  @Test
+  public void shouldDrawSameScreenWhenParsedIncrementallyAsWhenParsedAtOnce() {
+    WriteCommandParser parser = new WriteCommandParser(0, CHARSET);
+    for (int received = SEGMENT_SIZE; received < record.length; received += SEGMENT_SIZE) {
+      parser.parse(record, received);
+    }
+    WriteCommand incremental = parser.finish(record, 0, record.length);
+    WriteCommand full = new WriteCommand(record, 0, record.length, CHARSET);
+    assertThat(drawScreen(incremental))
+        .contains("TSO/E LOGON")
+        .isEqualTo(drawScreen(full));
+  }
+
+  @Test
+  public void shouldDrawSameScreenWhenSegmentBuffersAreReusedAfterIncrementalParse() {
+    WriteCommandParser parser = new WriteCommandParser(0, CHARSET);
+    for (int received = SEGMENT_SIZE; received < record.length; received += SEGMENT_SIZE) {
+      byte[] segments = Arrays.copyOf(record, received);
+      parser.parse(segments, received);
+      Arrays.fill(segments, (byte) 0);
+    }
+    WriteCommand incremental = parser.finish(record, 0, record.length);
+    WriteCommand full = new WriteCommand(record, 0, record.length, CHARSET);
+    assertThat(drawScreen(incremental)).isEqualTo(drawScreen(full));
+  }
+
+  @Test
+  public void shouldDrawSameScreenWhenOrdersAreDescribedBeforeExecuted() {
+    WriteCommand described = new WriteCommand(record, 0, record.length, CHARSET);
+    assertThat(described.toString()).contains("SBA");
+    WriteCommand executed = new WriteCommand(record, 0, record.length, CHARSET);
+    assertThat(drawScreen(described)).isEqualTo(drawScreen(executed));
+  }
+
+  @Test
+  public void shouldIgnoreOrderTruncatedByEndOfRecordWhenBufferHasMoreData() {
+    // the start field attribute of the last order follows the record in the buffer
+    byte[] buffer = Arrays.copyOf(record, record.length + 2);
+    buffer[record.length] = Order.START_FIELD;
+    buffer[record.length + 1] = 0x60;
+    WriteCommand truncated = new WriteCommand(buffer, 0, record.length + 1, CHARSET);
+    WriteCommand full = new WriteCommand(record, 0, record.length, CHARSET);
+    assertThat(drawScreen(truncated)).isEqualTo(drawScreen(full));
+  }
+
+  private String drawScreen(WriteCommand command) {
+    Screen screen = new Screen(new ScreenDimensions(24, 80), null, new TelnetState(), CHARSET);
+    command.process(screen);
+    StringBuilder text = new StringBuilder();
+    Iterator<ScreenPosition> positions = screen.getPen().iterator();
+    while (positions.hasNext()) {
+      ScreenPosition position = positions.next();
+      text.append(position.isStartField() ? '|' : position.getChar());
+    }
+    return text.toString();
+  }
+
+}
@@ -0,0 +1,64 @@
+package com.bytezone.dm3270.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScreenBufferTest {
+
+  private static final byte VALUE = (byte) 0xC1;
+
+  private ScreenBuffer buffer;
+
+  @Before
+  public void setup() {
+    buffer = new ScreenBuffer(4, ScreenContext.DEFAULT_CONTEXT, Charset.CP1047);
+    buffer.setStartField(0, new StartFieldAttribute((byte) 0x20));
+    buffer.addAttribute(0, Attribute.getAttribute(Attribute.XA_FGCOLOR, VALUE).get());
+    buffer.setChar(1, VALUE);
+  }
+
+  @Test
+  public void shouldReadPositionsAsResetWhenCleared() {
+    buffer.clear();
+    assertThat(buffer.isStartField(0)).isFalse();
+    assertThat(buffer.getAttributes(0)).isEmpty();
+    assertThat(buffer.getByte(1)).isEqualTo((byte) 0);
+  }
+
+  @Test
+  public void shouldOnlyKeepNewContentsWhenWrittenAfterClear() {
+    buffer.clear();
+    buffer.addAttribute(0, Attribute.getAttribute(Attribute.XA_BGCOLOR, VALUE).get());
+    buffer.setChar(2, VALUE);
+    assertThat(buffer.getAttributes(0))
+        .containsExactly(Attribute.getAttribute(Attribute.XA_BGCOLOR, VALUE).get());
+    assertThat(buffer.isStartField(0)).isFalse();
+    assertThat(buffer.getByte(1)).isEqualTo((byte) 0);
+    assertThat(buffer.getByte(2)).isEqualTo(VALUE);
+  }
+
+  @Test
+  public void shouldOnlyReportRowsOfChangedPositionsWhenChangesAreTaken() {
+    buffer.setColumns(2);
+    buffer.takeChanges();
+    buffer.setChar(3, VALUE);
+    ScreenChanges changes = buffer.takeChanges();
+    assertThat(changes.getFirstPosition()).isEqualTo(3);
+    assertThat(changes.getLastPosition()).isEqualTo(3);
+    assertThat(changes.isRowChanged(0)).isFalse();
+    assertThat(changes.isRowChanged(1)).isTrue();
+  }
+
+  @Test
+  public void shouldNotReportChangesWhenPositionIsWrittenWithSameCharacter() {
+    buffer.takeChanges();
+    buffer.write(1, VALUE);
+    assertThat(buffer.takeChanges().isEmpty()).isTrue();
+  }
+
+}
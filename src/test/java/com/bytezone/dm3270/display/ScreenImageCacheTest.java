@@ -0,0 +1,100 @@
+package com.bytezone.dm3270.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.TestRecords;
+import com.bytezone.dm3270.attributes.ForegroundColor;
+import com.bytezone.dm3270.commands.WriteCommand;
+import com.bytezone.dm3270.streams.TelnetState;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ScreenImageCacheTest {
+
+  private static final Charset CHARSET = Charset.CP1047;
+
+  private static byte[] record;
+
+  @BeforeClass
+  public static void setupClass() throws Exception {
+    CHARSET.load();
+    record = TestRecords.biggestLoginScreen();
+  }
+
+  @Test
+  public void shouldDrawSameScreenAndFieldsWhenScreenIsRestoredFromCache() {
+    ScreenImageCache cache = new ScreenImageCache();
+    Screen executed = drawScreen(cache);
+    drawScreen(cache);
+    Screen restored = drawScreen(cache);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(describe(restored)).isEqualTo(describe(executed));
+  }
+
+  @Test
+  public void shouldNotCacheScreenWhenDrawnOnlyOnce() {
+    ScreenImageCache cache = new ScreenImageCache();
+    drawScreen(cache);
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotApplyAttributesPendingBeforeEraseWriteWhenScreenIsRestored() {
+    // erase write with a field starting at second row, so the first position has no field
+    byte[] fieldRecord = new byte[] {(byte) 0xF5, (byte) 0xC3, 0x11, 0x00, 0x50, 0x1D, 0x60,
+        (byte) 0xC1};
+    ScreenImageCache cache = new ScreenImageCache();
+    Screen executed = drawScreen(cache, fieldRecord);
+    drawScreen(cache, fieldRecord);
+    Screen restored = new Screen(new ScreenDimensions(24, 80), null, new TelnetState(), CHARSET);
+    restored.setScreenImageCache(cache);
+    restored.getPen().addAttribute(new ForegroundColor((byte) 0xF2));
+    new WriteCommand(fieldRecord, 0, fieldRecord.length, CHARSET).process(restored);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(describe(restored)).isEqualTo(describe(executed));
+  }
+
+  @Test
+  public void shouldDiscardLeastRecentlyUsedScreenWhenMemoryLimitIsExceeded() {
+    ScreenImageCache unbounded = new ScreenImageCache();
+    drawScreen(unbounded);
+    drawScreen(unbounded);
+    // room for one screen but not for two
+    ScreenImageCache cache = new ScreenImageCache(unbounded.getUsedBytes() * 3 / 2);
+    drawScreen(cache);
+    drawScreen(cache);
+    byte[] otherRecord = Arrays.copyOf(record, record.length);
+    otherRecord[otherRecord.length - 1]++;
+    drawScreen(cache, otherRecord);
+    drawScreen(cache, otherRecord);
+    drawScreen(cache);
+    assertThat(cache.getHits()).isEqualTo(0);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  private Screen drawScreen(ScreenImageCache cache) {
+    return drawScreen(cache, record);
+  }
+
+  private Screen drawScreen(ScreenImageCache cache, byte[] record) {
+    Screen screen = new Screen(new ScreenDimensions(24, 80), null, new TelnetState(), CHARSET);
+    screen.setScreenImageCache(cache);
+    new WriteCommand(record, 0, record.length, CHARSET).process(screen);
+    return screen;
+  }
+
+  private String describe(Screen screen) {
+    StringBuilder text = new StringBuilder();
+    for (ScreenPosition position : screen.getPen()) {
+      text.append(position).append('\n');
+    }
+    text.append(screen.getFieldManager().getFields().stream()
+        .map(Field::toString)
+        .collect(Collectors.joining("\n")));
+    return text.append(screen.getScreenCursor().getLocation()).toString();
+  }
+
+}
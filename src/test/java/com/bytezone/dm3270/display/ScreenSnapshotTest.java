@@ -0,0 +1,63 @@
+package com.bytezone.dm3270.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.TestRecords;
+import com.bytezone.dm3270.commands.WriteCommand;
+import com.bytezone.dm3270.streams.TelnetState;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ScreenSnapshotTest {
+
+  private static final Charset CHARSET = Charset.CP1047;
+
+  private static byte[] record;
+
+  private Screen screen;
+
+  @BeforeClass
+  public static void setupClass() throws Exception {
+    CHARSET.load();
+    record = TestRecords.biggestLoginScreen();
+  }
+
+  @Before
+  public void setup() {
+    screen = new Screen(new ScreenDimensions(24, 80), null, new TelnetState(), CHARSET);
+    new WriteCommand(record, 0, record.length, CHARSET).process(screen);
+    screen.publishSnapshot();
+  }
+
+  @Test
+  public void shouldHaveTextAndFieldsOfScreenWhenPublished() {
+    ScreenSnapshot snapshot = screen.getSnapshot();
+    assertThat(snapshot.getText()).isEqualTo(screen.getScreenText());
+    assertThat(snapshot.getFields().stream().map(FieldSnapshot::getText)
+        .collect(Collectors.toList()))
+        .isEqualTo(screen.getFieldManager().getFields().stream().map(Field::getText)
+            .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void shouldKeepSnapshotWhenScreenIsUnchanged() {
+    ScreenSnapshot snapshot = screen.getSnapshot();
+    screen.publishSnapshot();
+    assertThat(screen.getSnapshot()).isSameAs(snapshot);
+  }
+
+  @Test
+  public void shouldOnlyCopyChangedRowsWhenScreenChanges() {
+    ScreenSnapshot snapshot = screen.getSnapshot();
+    screen.setPositionText(23 * 80, "X");
+    screen.publishSnapshot();
+    ScreenSnapshot changed = screen.getSnapshot();
+    assertThat(changed.getVersion()).isEqualTo(snapshot.getVersion() + 1);
+    assertThat(changed.getRowText(0)).isSameAs(snapshot.getRowText(0));
+    assertThat(changed.getText()).isEqualTo(screen.getScreenText());
+  }
+
+}
@@ -0,0 +1,130 @@
+package com.bytezone.dm3270.orders;
+
+import com.bytezone.dm3270.Charset;
+import com.bytezone.dm3270.commands.WriteCommandParser;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import us.abstracta.wiresham.Flow;
+import us.abstracta.wiresham.Packet;
+import us.abstracta.wiresham.PacketStep;
+import us.abstracta.wiresham.ServerPacketStep;
+
+/*
+Measures the throughput of splitting the write command records sent by the servers of the flows in
+test resources into orders, comparing the previous search of each text byte in all order values
+with the lookup in the order classification table. Run it with the test classpath, optionally
+passing the resources directory.
+ */
+public class OrderParsingBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 2000;
+  private static final int ITERATIONS = 20000;
+  private static final byte IAC = (byte) 0xFF;
+
+  private final List<byte[]> records = new ArrayList<>();
+  private long totalBytes;
+  private int orders;
+
+  public static void main(String[] args) throws Exception {
+    File resources = new File(args.length > 0 ? args[0] : "src/test/resources");
+    Charset.CP1047.load();
+    OrderParsingBenchmark benchmark = new OrderParsingBenchmark();
+    File[] flows = resources.listFiles((dir, name) -> name.endsWith(".yml"));
+    if (flows == null) {
+      throw new IllegalArgumentException("No flows found in " + resources);
+    }
+    for (File flow : flows) {
+      benchmark.addFlow(flow);
+    }
+    benchmark.run();
+  }
+
+  private void addFlow(File file) throws Exception {
+    for (PacketStep step : Flow.fromYml(file).getSteps()) {
+      if (step instanceof ServerPacketStep) {
+        addRecord(Packet.fromHexDump(step.getData()).getBytes());
+      }
+    }
+  }
+
+  // only complete write command records without escaped IACs, which the flows are made of
+  private void addRecord(byte[] packet) {
+    int length = packet.length - 2;
+    if (length < 2 || packet[length] != IAC || !WriteCommandParser.isWriteCommand(packet[0])) {
+      return;
+    }
+    for (int i = 0; i < length; i++) {
+      if (packet[i] == IAC) {
+        return;
+      }
+    }
+    byte[] record = new byte[length];
+    System.arraycopy(packet, 0, record, 0, length);
+    records.add(record);
+    totalBytes += length;
+  }
+
+  private void run() {
+    System.out.printf("%d records, %d bytes%n", records.size(), totalBytes);
+    measure("nested", OrderParsingBenchmark::countNestedLoop);
+    measure("table", OrderParsingBenchmark::countTable);
+    measure("orders", OrderParsingBenchmark::countOrders);
+  }
+
+  private void measure(String name, ToIntFunction<byte[]> split) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      splitRecords(split);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      splitRecords(split);
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    double mbPerSecond = (double) totalBytes * ITERATIONS / elapsedNanos * 1e9 / (1024 * 1024);
+    System.out.printf("%-6s: %8.1f MB/s (%d orders)%n", name, mbPerSecond, orders);
+  }
+
+  private void splitRecords(ToIntFunction<byte[]> split) {
+    orders = 0;
+    for (byte[] record : records) {
+      orders += split.applyAsInt(record);
+    }
+  }
+
+  // the search TextOrder did before the classification table
+  private static int countNestedLoop(byte[] record) {
+    int count = 0;
+    for (int ptr = 2; ptr < record.length; ptr++) {
+      for (byte orderValue : Order.orderValues) {
+        if (record[ptr] == orderValue) {
+          count++;
+          break;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int countTable(byte[] record) {
+    int count = 0;
+    for (int ptr = 2; ptr < record.length; ptr++) {
+      if (Order.isOrder(record[ptr])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int countOrders(byte[] record) {
+    int count = 0;
+    int ptr = 2;                     // skip command and WCC
+    while (ptr < record.length) {
+      ptr += Order.getOrder(record, ptr, record.length, Charset.CP1047).size();
+      count++;
+    }
+    return count;
+  }
+
+}
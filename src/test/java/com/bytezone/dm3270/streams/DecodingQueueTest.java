@@ -0,0 +1,81 @@
+package com.bytezone.dm3270.streams;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import org.junit.Test;
+
+public class DecodingQueueTest {
+
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+  private final SharedThreadTransport transport = new SharedThreadTransport();
+  private final DecodingQueue queue = new DecodingQueue(2,
+      DecodingQueue.BackpressurePolicy.BLOCK, tasks::add, transport, b -> { });
+
+  private static final class SharedThreadTransport implements Transport {
+
+    private boolean readingPaused;
+
+    @Override
+    public void connect(String host, int port, int connectionTimeoutMillis,
+        TransportListener listener) {
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) {
+    }
+
+    @Override
+    public boolean sharesReceivingThread() {
+      return true;
+    }
+
+    @Override
+    public void setReadingPaused(boolean paused) {
+      readingPaused = paused;
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
+  @Test
+  public void shouldPauseReadingInsteadOfBlockingWhenSharedThreadFillsQueue() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      assertThat(queue.offer(ByteBuffer.wrap(new byte[]{(byte) i}))).isTrue();
+    }
+    assertThat(transport.readingPaused).isTrue();
+    assertThat(queue.getDepth()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldResumeReadingWhenQueueIsDrained() throws Exception {
+    queue.offer(ByteBuffer.wrap(new byte[]{1}));
+    queue.offer(ByteBuffer.wrap(new byte[]{2}));
+    tasks.poll().run();
+    assertThat(transport.readingPaused).isFalse();
+    assertThat(queue.getDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRunActionAfterDrainedWhenSegmentsAreDecoded() throws Exception {
+    List<Byte> decoded = new ArrayList<>();
+    List<Integer> decodedBeforeAction = new ArrayList<>();
+    DecodingQueue decodingQueue = new DecodingQueue(2, DecodingQueue.BackpressurePolicy.FAIL,
+        tasks::add, transport, b -> decoded.add(b.get()));
+    decodingQueue.offer(ByteBuffer.wrap(new byte[]{1}));
+    decodingQueue.offer(ByteBuffer.wrap(new byte[]{2}));
+    decodingQueue.afterDrained(() -> decodedBeforeAction.add(decoded.size()));
+    while (!tasks.isEmpty()) {
+      tasks.poll().run();
+    }
+    assertThat(decodedBeforeAction).containsExactly(2);
+  }
+
+}
@@ -0,0 +1,94 @@
+package com.bytezone.dm3270.streams;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeepAliveServiceTest {
+
+  private static final long TICK_MILLIS = 10;
+  private static final long IDLE_MILLIS = 200;
+
+  private final KeepAliveService service = new KeepAliveService(TICK_MILLIS, 16);
+  private final NoOpCountingTransport transport = new NoOpCountingTransport();
+  private final TelnetState telnetState = new TelnetState();
+  private long registrationMillis;
+
+  private static final class NoOpCountingTransport implements Transport {
+
+    private final Semaphore noOps = new Semaphore(0);
+
+    @Override
+    public void connect(String host, int port, int connectionTimeoutMillis,
+        TransportListener listener) {
+      listener.onConnection();
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) {
+      for (ByteBuffer buffer : buffers) {
+        if (buffer.equals(ByteBuffer.wrap(TelnetState.NO_OP))) {
+          noOps.release();
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
+  private static final class NullBufferListener implements BufferListener {
+
+    @Override
+    public void listen(TelnetSocket.Source targetRole, byte[] message, LocalDateTime dateTime,
+        boolean genuine) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
+  @Before
+  public void setup() {
+    TerminalServer terminalServer = new TerminalServer("localhost", 23, transport,
+        new NullBufferListener());
+    terminalServer.connect();
+    telnetState.setKeepAliveIdleMillis(IDLE_MILLIS);
+    registrationMillis = System.currentTimeMillis();
+    telnetState.setLastAccess();
+    telnetState.setTerminalServer(terminalServer, service);
+  }
+
+  @Test
+  public void shouldSendNoOpWhenSessionIsIdleForInterval() throws Exception {
+    assertThat(transport.noOps.tryAcquire(IDLE_MILLIS * 10, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(System.currentTimeMillis() - registrationMillis)
+        .isGreaterThanOrEqualTo(IDLE_MILLIS);
+  }
+
+  @Test
+  public void shouldNotSendNoOpWhileSessionHasActivity() throws Exception {
+    long end = System.currentTimeMillis() + IDLE_MILLIS * 3;
+    while (System.currentTimeMillis() < end) {
+      telnetState.setLastAccess();
+      assertThat(transport.noOps.tryAcquire(IDLE_MILLIS / 10, TimeUnit.MILLISECONDS)).isFalse();
+    }
+    assertThat(transport.noOps.tryAcquire(IDLE_MILLIS * 10, TimeUnit.MILLISECONDS)).isTrue();
+  }
+
+  @Test
+  public void shouldNotSendNoOpWhenSessionIsClosed() throws Exception {
+    telnetState.close();
+    assertThat(transport.noOps.tryAcquire(IDLE_MILLIS * 3, TimeUnit.MILLISECONDS)).isFalse();
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.bytezone.dm3270.telnet;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import us.abstracta.wiresham.Flow;
+import us.abstracta.wiresham.Packet;
+import us.abstracta.wiresham.PacketStep;
+import us.abstracta.wiresham.ServerPacketStep;
+
+/*
+Measures the throughput of TelnetProcessor parsing the data sent by the servers of the flows in
+test resources, both from arrays (as when replaying sessions) and from the reused buffer of a
+transport. Run it with the test classpath, optionally passing the resources directory.
+ */
+public class TelnetProcessorBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 2000;
+  private static final int ITERATIONS = 20000;
+
+  private final List<byte[]> segments = new ArrayList<>();
+  private final TelnetProcessor processor = new TelnetProcessor(new NullCommandProcessor());
+  private final ByteBuffer transportBuffer = ByteBuffer.allocate(65536);
+  private long totalBytes;
+
+  public static void main(String[] args) throws Exception {
+    File resources = new File(args.length > 0 ? args[0] : "src/test/resources");
+    TelnetProcessorBenchmark benchmark = new TelnetProcessorBenchmark();
+    File[] flows = resources.listFiles((dir, name) -> name.endsWith(".yml"));
+    if (flows == null) {
+      throw new IllegalArgumentException("No flows found in " + resources);
+    }
+    for (File flow : flows) {
+      benchmark.addFlow(flow);
+    }
+    benchmark.run();
+  }
+
+  private void addFlow(File file) throws Exception {
+    for (PacketStep step : Flow.fromYml(file).getSteps()) {
+      if (step instanceof ServerPacketStep) {
+        byte[] segment = Packet.fromHexDump(step.getData()).getBytes();
+        segments.add(segment);
+        totalBytes += segment.length;
+      }
+    }
+  }
+
+  private void run() {
+    System.out.printf("%d segments, %d bytes%n", segments.size(), totalBytes);
+    measure("array", this::parseArrays);
+    measure("buffer", this::parseBuffers);
+  }
+
+  private void measure(String name, Runnable parse) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      parse.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      parse.run();
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    double mbPerSecond = (double) totalBytes * ITERATIONS / elapsedNanos * 1e9 / (1024 * 1024);
+    System.out.printf("%-6s: %8.1f MB/s%n", name, mbPerSecond);
+  }
+
+  private void parseArrays() {
+    for (byte[] segment : segments) {
+      processor.listen(segment);
+    }
+  }
+
+  private void parseBuffers() {
+    for (byte[] segment : segments) {
+      // the transport reads into the same buffer for every segment
+      transportBuffer.clear();
+      transportBuffer.put(segment);
+      transportBuffer.flip();
+      processor.listen(transportBuffer);
+    }
+  }
+
+  private static class NullCommandProcessor implements TelnetCommandProcessor {
+
+    @Override
+    public void processData(byte[] buffer, int length) {
+    }
+
+    @Override
+    public void processRecord(byte[] buffer, int length) {
+    }
+
+    @Override
+    public void processRecord(byte[] buffer, int offset, int length) {
+    }
+
+    @Override
+    public void processTelnetCommand(byte[] buffer, int length) {
+    }
+
+    @Override
+    public void processTelnetSubcommand(byte[] buffer, int length) {
+    }
+
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.bytezone.dm3270.telnet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TelnetProcessorTest {
+
+  private static final int RECORD_SIZE = 40000;
+
+  @Mock
+  private TelnetCommandProcessor commandProcessor;
+  private TelnetProcessor processor;
+  private byte[] receivedRecord;
+
+  @Before
+  public void setup() {
+    processor = new TelnetProcessor(commandProcessor);
+  }
+
+  @Test
+  public void shouldProcessRecordWhenRecordBiggerThanSegmentsIsReceived() {
+    byte[] record = buildRecord(RECORD_SIZE);
+    doAnswer(invocation -> {
+      byte[] buffer = invocation.getArgument(0);
+      int length = invocation.getArgument(1);
+      receivedRecord = Arrays.copyOf(buffer, length);
+      return null;
+    }).when(commandProcessor).processRecord(any(), eq(RECORD_SIZE));
+    sendInSegments(record, 4096);
+    assertThat(receivedRecord).isEqualTo(record);
+  }
+
+  private byte[] buildRecord(int size) {
+    byte[] record = new byte[size];
+    for (int i = 0; i < size - 2; i++) {
+      record[i] = (byte) (i % 0xFF);
+    }
+    record[size - 2] = (byte) 0xFF;
+    record[size - 1] = TelnetProcessor.EOR;
+    return record;
+  }
+
+  private void sendInSegments(byte[] data, int segmentSize) {
+    for (int i = 0; i < data.length; i += segmentSize) {
+      processor.listen(Arrays.copyOfRange(data, i, Math.min(i + segmentSize, data.length)));
+    }
+  }
+
+  @Test(expected = RecordTooLargeException.class)
+  public void shouldThrowRecordTooLargeExceptionWhenRecordExceedsMaxRecordSize() {
+    processor.setMaxRecordSize(RECORD_SIZE - 1);
+    try {
+      sendInSegments(buildRecord(RECORD_SIZE), 4096);
+    } finally {
+      verify(commandProcessor, never()).processRecord(any(), anyInt());
+    }
+  }
+
+}